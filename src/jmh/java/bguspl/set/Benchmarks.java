@@ -0,0 +1,46 @@
+package bguspl.set;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * Runs the JMH benchmarks of the game (java -jar target/benchmarks.jar, see the jmh profile in pom.xml).
+ * Takes the usual JMH options, and unless told otherwise writes the results as JSON to jmh-result.json, so runs can
+ * be compared (e.g. with https://jmh.morethan.io).
+ */
+public class Benchmarks {
+
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        if (!options.contains("-rf"))
+            options.addAll(Arrays.asList("-rf", "json"));
+        if (!options.contains("-rff"))
+            options.addAll(Arrays.asList("-rff", "jmh-result.json"));
+        org.openjdk.jmh.Main.main(options.toArray(new String[0]));
+    }
+
+    /**
+     * @param overrides - configuration properties on top of the benchmark defaults (no delays, one human player,
+     *                  no turn timeout during a run, no logging).
+     * @return - a game environment with no user interface.
+     */
+    public static Env env(Properties overrides) {
+        Properties properties = new Properties();
+        properties.put("LogLevel", "OFF");
+        properties.put("HumanPlayers", "1");
+        properties.put("ComputerPlayers", "0");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("TurnTimeoutSeconds", "3600");
+        properties.put("PointFreezeSeconds", "0");
+        properties.put("PenaltyFreezeSeconds", "0");
+        properties.putAll(overrides);
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Config config = new Config(logger, properties);
+        Util util = new UtilImpl(config);
+        return new Env(logger, config, new UserInterfaceDecorator(logger, util, null), util);
+    }
+}
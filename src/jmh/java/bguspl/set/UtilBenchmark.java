@@ -0,0 +1,83 @@
+package bguspl.set;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * The set engine (UtilImpl) across deck sizes: 3^featureCount cards with 3 choices per feature.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UtilBenchmark {
+
+    @Param({"3", "4", "5"})
+    public int featureCount;
+
+    private Util util;
+    private int[] legalSet;
+    private int[] wrongSet;
+    private List<Integer> table; // 12 cards, as dealt
+    private List<Integer> deck; // the whole deck, shuffled
+
+    @Setup
+    public void setUp() {
+        Properties properties = new Properties();
+        properties.put("FeatureCount", String.valueOf(featureCount));
+        util = Benchmarks.env(properties).util;
+        Random rnd = new Random(42);
+        deck = IntStream.range(0, (int) Math.pow(3, featureCount)).boxed().collect(Collectors.toList());
+        Collections.shuffle(deck, rnd);
+        table = new ArrayList<>(deck.subList(0, 12));
+        legalSet = util.findSets(deck, 1).get(0);
+        wrongSet = new int[]{legalSet[0], legalSet[1], legalSet[2] == 0 ? 1 : 0};
+        if (util.testSet(wrongSet))
+            wrongSet[2] = 2; // the third card of a set is unique, so one of 0, 1, 2 is not it
+    }
+
+    @Benchmark
+    public boolean testSet_Legal() {
+        return util.testSet(legalSet);
+    }
+
+    @Benchmark
+    public boolean testSet_Wrong() {
+        return util.testSet(wrongSet);
+    }
+
+    @Benchmark
+    public int[][] cardsToFeatures() {
+        return util.cardsToFeatures(legalSet);
+    }
+
+    @Benchmark
+    public List<int[]> findSets_AllOnTable() {
+        return util.findSets(table, Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    public List<int[]> findSets_FirstInDeck() {
+        return util.findSets(deck, 1);
+    }
+}
@@ -0,0 +1,126 @@
+package bguspl.set.ex;
+
+import bguspl.set.Benchmarks;
+import bguspl.set.Env;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The claim pipeline: a player asks the dealer to check its set (Dealer.IHaveASet) and waits for the verdict, while
+ * a real dealer thread runs its loop (checkSet). Every benchmark thread is a claiming player, so the threads contend
+ * for the dealer's semaphore, its lock and its queue. The claimed set is a wrong one, so the table never changes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ClaimBenchmark {
+
+    private Env env;
+    private Table table;
+    private Dealer dealer;
+    private Thread dealerThread;
+    private int[] wrongSlots;
+
+    @Setup
+    public void setUp() throws InterruptedException {
+        env = Benchmarks.env(new Properties());
+        table = new Table(env);
+        Player[] players = new Player[1]; // a human player that never presses, like in Main the players come last
+        dealer = new Dealer(env, table, players);
+        players[0] = new Player(env, dealer, table, 0, true);
+        dealerThread = new Thread(dealer, "dealer");
+        dealerThread.start();
+        while (!table.gate.isOpen() || table.countCards() < env.config.tableSize)
+            Thread.sleep(1);
+        wrongSlots = findWrongSet();
+    }
+
+    @TearDown
+    public void tearDown() throws InterruptedException {
+        dealer.terminate();
+        dealerThread.interrupt();
+        dealerThread.join();
+    }
+
+    private int[] findWrongSet() {
+        int n = env.config.tableSize;
+        for (int a = 0; a < n; a++)
+            for (int b = a + 1; b < n; b++)
+                for (int c = b + 1; c < n; c++)
+                    if (!env.util.testSet(new int[]{table.slotToCard(a), table.slotToCard(b), table.slotToCard(c)}))
+                        return new int[]{a, b, c};
+        throw new IllegalStateException("every 3 cards on the table are a set");
+    }
+
+    @State(Scope.Thread)
+    public static class Claimer {
+        Player player;
+
+        @Setup
+        public void setUp(ClaimBenchmark benchmark) {
+            player = new Player(benchmark.env, benchmark.dealer, benchmark.table, 0, true);
+            for (int slot : benchmark.wrongSlots)
+                player.myTokens.add(slot);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public int claim_1(Claimer claimer) throws InterruptedException {
+        return claim(claimer.player);
+    }
+
+    @Benchmark
+    @Threads(2)
+    public int claim_2(Claimer claimer) throws InterruptedException {
+        return claim(claimer.player);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public int claim_4(Claimer claimer) throws InterruptedException {
+        return claim(claimer.player);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public int claim_8(Claimer claimer) throws InterruptedException {
+        return claim(claimer.player);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public int claim_16(Claimer claimer) throws InterruptedException {
+        return claim(claimer.player);
+    }
+
+    /**
+     * The same round trip as in Player.run, without the penalty that follows.
+     */
+    private int claim(Player player) throws InterruptedException {
+        synchronized (player) {
+            dealer.IHaveASet(player);
+            while (player.flag == -1)
+                player.wait();
+            int verdict = player.flag;
+            player.flag = -1;
+            return verdict;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package bguspl.set.ex;
+
+import bguspl.set.Benchmarks;
+import bguspl.set.Env;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The table operations: the dealer replacing a card, and players placing and removing tokens on a full table
+ * (each thread is a different player, on its own slot, all sharing the table's read lock).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TableBenchmark {
+
+    private static final Player[] NO_PLAYERS = {};
+    private static final int REPLACED_SLOT = 11;
+
+    private Env env;
+    private Table table;
+
+    @Setup
+    public void setUp() {
+        env = Benchmarks.env(new Properties());
+        table = new Table(env);
+        for (int slot = 0; slot < env.config.tableSize; slot++)
+            table.placeCard(slot, slot);
+        table.gate.open();
+    }
+
+    @State(Scope.Thread)
+    public static class Hand {
+        Player player;
+        int slot;
+
+        @Setup
+        public void setUp(TableBenchmark benchmark, ThreadParams thread) {
+            player = new Player(benchmark.env, null, benchmark.table, thread.getThreadIndex(), true);
+            slot = thread.getThreadIndex() % REPLACED_SLOT; // never the slot being replaced
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public void removeAndPlaceCard() {
+        table.removeCard(REPLACED_SLOT, NO_PLAYERS);
+        table.placeCard(REPLACED_SLOT, REPLACED_SLOT);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean placeAndRemoveToken_1(Hand hand) {
+        return placeAndRemoveToken(hand);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public boolean placeAndRemoveToken_4(Hand hand) {
+        return placeAndRemoveToken(hand);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean placeAndRemoveToken_16(Hand hand) {
+        return placeAndRemoveToken(hand);
+    }
+
+    private boolean placeAndRemoveToken(Hand hand) {
+        table.placeToken(hand.player, hand.slot);
+        return table.removeToken(hand.player, hand.slot);
+    }
+}
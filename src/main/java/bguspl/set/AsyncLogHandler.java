@@ -0,0 +1,163 @@
+package bguspl.set;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+
+/**
+ * A log handler that keeps the logging threads off the file.
+ * publish only puts the record in a lock-free ring buffer (the record is not formatted yet). A background writer
+ * thread formats the records and writes them to the file in batches. When the buffer is full the record is dropped
+ * and counted, and the writer reports how many were dropped, so a logging thread never waits.
+ */
+public class AsyncLogHandler extends Handler {
+
+    private static final long WRITER_PARK_NANOS = 5_000_000L; // how often the writer looks for new records when idle
+
+    private final AtomicReferenceArray<LogRecord> ring;
+    private final int mask;
+    private final AtomicLong tail = new AtomicLong(); // the next sequence to claim (logging threads)
+    private volatile long head; // the next sequence to write (writer thread only)
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final Writer out;
+    private final Thread writer;
+    private volatile boolean closed;
+
+    /**
+     * @param filename - the log file to write to.
+     * @param capacity - the number of records the buffer holds (rounded up to a power of 2).
+     */
+    public AsyncLogHandler(String filename, int capacity) throws IOException {
+        int size = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        ring = new AtomicReferenceArray<>(size);
+        mask = size - 1;
+        out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(filename), StandardCharsets.UTF_8), 1 << 16);
+        writer = new Thread(this::writeLoop, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record))
+            return;
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head >= ring.length()) { // full, do not wait for the writer
+                dropped.incrementAndGet();
+                return;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+        ring.set((int) (sequence & mask), record);
+    }
+
+    private void writeLoop() {
+        long reportedDrops = 0;
+        while (!closed || head != tail.get()) {
+            int written = drain();
+            long drops = dropped.get();
+            if (drops != reportedDrops) {
+                write("[log] " + (drops - reportedDrops) + " records dropped, the log buffer was full"
+                        + System.lineSeparator());
+                reportedDrops = drops;
+                written++;
+            }
+            if (written > 0)
+                flushOut();
+            else if (!closed)
+                LockSupport.parkNanos(this, WRITER_PARK_NANOS);
+            else
+                Thread.yield(); // a record was claimed but is not in the buffer yet
+        }
+        flushOut();
+    }
+
+    /**
+     * Formats and writes all the records that are ready, in order.
+     *
+     * @return - the number of records written.
+     */
+    private int drain() {
+        int written = 0;
+        while (true) {
+            int index = (int) (head & mask);
+            LogRecord record = ring.get(index);
+            if (record == null) // nothing more, or the next record was claimed but is not in the buffer yet
+                return written;
+            ring.set(index, null);
+            head++; // only this thread writes head
+            try {
+                write(getFormatter() != null ? getFormatter().format(record) : record.getMessage() + System.lineSeparator());
+            } catch (RuntimeException e) {
+                reportError(null, e, ErrorManager.FORMAT_FAILURE);
+            }
+            written++;
+        }
+    }
+
+    private void write(String text) {
+        try {
+            out.write(text);
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.WRITE_FAILURE);
+        }
+    }
+
+    private void flushOut() {
+        try {
+            out.flush();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.FLUSH_FAILURE);
+        }
+    }
+
+    /**
+     * Waits until the records published so far were written.
+     */
+    @Override
+    public void flush() {
+        long target = tail.get();
+        while (head < target && writer.isAlive()) {
+            LockSupport.unpark(writer);
+            Thread.yield();
+        }
+    }
+
+    /**
+     * Writes all the remaining records, stops the writer and closes the file.
+     */
+    @Override
+    public void close() {
+        if (closed)
+            return;
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException ignored) {
+        }
+        try {
+            out.close();
+        } catch (IOException e) {
+            reportError(null, e, ErrorManager.CLOSE_FAILURE);
+        }
+    }
+
+    /**
+     * @return - the number of records dropped because the buffer was full.
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+}
@@ -0,0 +1,185 @@
+package bguspl.set;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+
+import static bguspl.set.UserInterfaceSwing.intInBaseToPaddedString;
+
+/**
+ * Provides the card images of the Swing user interface.
+ * If config.cardAtlas is set, all the cards are decoded at once from a single packed atlas image and sliced into
+ * per card sub-images. Otherwise every card is decoded from its own png on first use, and if config.preloadCardImages
+ * is set, the cards are also decoded in parallel in the background so they are usually ready before they are dealt.
+ *
+ * If config.cardRendering is Procedural, or it is Auto and there are no png resources for this deck (e.g. more
+ * features or feature values than the shipped 81 cards), the cards are drawn by a CardRenderer instead.
+ *
+ * The atlas holds deckSize + 1 equally sized tiles in row-major order (the cards by id, then the empty card), in
+ * atlasColumns(deckSize + 1) columns. It can be created from the png resources by running this class.
+ */
+class CardImages {
+
+    private final Logger logger;
+    private final Config config;
+    private final AtomicReferenceArray<Image> cards;
+    private final Image emptyCard;
+    private final AtomicInteger decoded = new AtomicInteger();
+    private final CardRenderer renderer; // null unless the cards are drawn procedurally
+
+    CardImages(Logger logger, Config config) {
+        this.logger = logger;
+        this.config = config;
+        cards = new AtomicReferenceArray<>(config.deckSize);
+        renderer = useRenderer(config) ? new CardRenderer(config) : null;
+
+        if (renderer != null) {
+            emptyCard = renderer.emptyCard();
+        } else if (!config.cardAtlas.isEmpty()) {
+            BufferedImage atlas = read(config.cardAtlas);
+            int columns = atlasColumns(config.deckSize + 1);
+            int tileWidth = atlas.getWidth() / columns;
+            int tileHeight = atlas.getHeight() / ((config.deckSize + columns) / columns);
+            for (int card = 0; card < config.deckSize; card++)
+                cards.set(card, tile(atlas, card, columns, tileWidth, tileHeight));
+            emptyCard = tile(atlas, config.deckSize, columns, tileWidth, tileHeight);
+        } else {
+            emptyCard = read("cards/empty_card.png");
+            if (config.preloadCardImages) {
+                Thread preloader = new Thread(() -> IntStream.range(0, config.deckSize).parallel().forEach(this::card),
+                        "card-images-loader");
+                preloader.setDaemon(true);
+                preloader.start();
+            }
+        }
+    }
+
+    /**
+     * Returns the image of a card, decoding it first if it was not decoded yet.
+     *
+     * @param card - the card id.
+     * @return - the card image.
+     */
+    Image card(int card) {
+        if (renderer != null)
+            return renderer.card(card);
+        Image image = cards.get(card);
+        if (image == null) {
+            cards.compareAndSet(card, null, read(cardResource(config, card))); // a parallel decode may have won
+            image = cards.get(card);
+        }
+        return image;
+    }
+
+    Image emptyCard() {
+        return emptyCard;
+    }
+
+    /**
+     * @return - true iff the cards are drawn procedurally (already cell sized and in a bounded cache).
+     */
+    boolean procedural() {
+        return renderer != null;
+    }
+
+    /**
+     * @return - the number of images decoded so far (an atlas counts as one).
+     */
+    int decoded() {
+        return decoded.get();
+    }
+
+    private static BufferedImage tile(BufferedImage atlas, int index, int columns, int tileWidth, int tileHeight) {
+        return atlas.getSubimage((index % columns) * tileWidth, (index / columns) * tileHeight, tileWidth, tileHeight);
+    }
+
+    /**
+     * Decodes an image resource, or an image file if there is no such resource.
+     */
+    private BufferedImage read(String resource) {
+        try {
+            URL url = getClass().getClassLoader().getResource(resource);
+            if (url == null && new File(resource).isFile())
+                url = new File(resource).toURI().toURL();
+            if (url == null)
+                throw new RuntimeException(new FileNotFoundException(resource));
+            BufferedImage image = ImageIO.read(url);
+            decoded.incrementAndGet();
+            return image;
+        } catch (IOException e) {
+            logger.severe("cannot decode image " + resource + ": " + e.getMessage());
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private boolean useRenderer(Config config) {
+        if (config.cardRendering.equalsIgnoreCase("Procedural"))
+            return true;
+        if (!config.cardRendering.equalsIgnoreCase("Auto"))
+            return false;
+        boolean resources = config.featureSize < 10 // otherwise there will be naming conflicts
+                && getClass().getClassLoader().getResource(cardResource(config, 0)) != null
+                && getClass().getClassLoader().getResource(cardResource(config, config.deckSize - 1)) != null;
+        if (!resources)
+            logger.info("no card images for a deck of " + config.deckSize + " cards, drawing the cards instead.");
+        return !resources;
+    }
+
+    static String cardResource(Config config, int card) {
+        return "cards/" + intInBaseToPaddedString(card, config.featureCount, config.featureSize) + ".png";
+    }
+
+    static int atlasColumns(int tiles) {
+        return (int) Math.ceil(Math.sqrt(tiles));
+    }
+
+    /**
+     * Packs the card png resources into an atlas image (see the class comment for the layout).
+     *
+     * @param args - the atlas file to write (e.g. src/main/resources/cards/atlas.png), and optionally the
+     *             configuration file (default config.properties).
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("usage: CardImages <atlas png file> [config file]");
+            return;
+        }
+        Logger logger = Logger.getLogger("CardImages");
+        Config config = new Config(logger, args.length > 1 ? args[1] : "config.properties");
+        CardImages images = new CardImages(logger, new Config(logger, withoutAtlas(config)));
+
+        int tiles = config.deckSize + 1;
+        int columns = atlasColumns(tiles);
+        int rows = (tiles + columns - 1) / columns;
+        Image empty = images.emptyCard();
+        int tileWidth = empty.getWidth(null), tileHeight = empty.getHeight(null);
+        BufferedImage atlas = new BufferedImage(columns * tileWidth, rows * tileHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = atlas.createGraphics();
+        for (int i = 0; i < tiles; i++) {
+            Image image = i < config.deckSize ? images.card(i) : empty;
+            g.drawImage(image, (i % columns) * tileWidth, (i / columns) * tileHeight, tileWidth, tileHeight, null);
+        }
+        g.dispose();
+        ImageIO.write(atlas, "png", new File(args[0]));
+        System.out.println("wrote " + tiles + " tiles of " + tileWidth + "x" + tileHeight + " to " + args[0]);
+    }
+
+    private static Properties withoutAtlas(Config config) {
+        Properties properties = new Properties();
+        properties.setProperty("FeatureSize", Integer.toString(config.featureSize));
+        properties.setProperty("FeatureCount", Integer.toString(config.featureCount));
+        properties.setProperty("PreloadCardImages", "false");
+        properties.setProperty("CardRendering", "Images");
+        return properties;
+    }
+}
@@ -0,0 +1,230 @@
+package bguspl.set;
+
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.RoundRectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Draws card images from the card features instead of loading them from png files, so any deck size can be shown.
+ * The features are drawn as: the number of shapes (feature 0), their color (feature 1), their shape (feature 2),
+ * their fill (feature 3), and a row of marks at the bottom for any further feature. Every value of every feature is
+ * drawn differently, whatever the feature size: past the four basic shapes a shape gets rings inside it (one more per
+ * round of four), and the striped fills go through four directions and then get sparser.
+ * The images are cell sized and kept in an LRU cache of config.cardImageCacheSize images, so memory stays bounded
+ * regardless of the deck size.
+ */
+class CardRenderer {
+
+    private static final Color[] COLORS = {
+            new Color(0xD3, 0x2F, 0x2F), new Color(0x38, 0x8E, 0x3C), new Color(0x51, 0x2D, 0xA8),
+            new Color(0xF5, 0x7C, 0x00), new Color(0x00, 0x79, 0x6B), new Color(0x19, 0x76, 0xD2),
+            new Color(0xC2, 0x18, 0x5B), new Color(0x5D, 0x40, 0x37), new Color(0x45, 0x5A, 0x64)};
+
+    private final Config config;
+    private final Map<Integer, BufferedImage> cache;
+    private BufferedImage emptyCard;
+    private long rendered;
+
+    CardRenderer(Config config) {
+        this.config = config;
+        cache = new LinkedHashMap<Integer, BufferedImage>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, BufferedImage> eldest) {
+                return size() > Math.max(1, config.cardImageCacheSize);
+            }
+        };
+    }
+
+    /**
+     * Returns the image of a card, drawing it if it is not in the cache.
+     *
+     * @param card - the card id.
+     * @return - a cell sized image of the card.
+     */
+    synchronized BufferedImage card(int card) {
+        BufferedImage image = cache.get(card);
+        if (image == null) {
+            image = draw(features(card));
+            cache.put(card, image);
+        }
+        return image;
+    }
+
+    synchronized BufferedImage emptyCard() {
+        if (emptyCard == null)
+            emptyCard = draw(null);
+        return emptyCard;
+    }
+
+    /**
+     * @return - the number of images currently cached.
+     */
+    synchronized int cached() {
+        return cache.size();
+    }
+
+    /**
+     * @return - the number of card images drawn so far (including images drawn again after being evicted).
+     */
+    synchronized long rendered() {
+        return rendered;
+    }
+
+    private int[] features(int card) {
+        int[] features = new int[config.featureCount];
+        for (int i = config.featureCount - 1; i >= 0; --i) {
+            features[i] = card % config.featureSize;
+            card /= config.featureSize;
+        }
+        return features;
+    }
+
+    private BufferedImage draw(int[] features) {
+        int width = config.cellWidth, height = config.cellHeight;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+
+        // the card itself
+        int margin = Math.max(2, Math.min(width, height) / 20);
+        RoundRectangle2D body = new RoundRectangle2D.Double(margin, margin, width - 2 * margin, height - 2 * margin,
+                4 * margin, 4 * margin);
+        g.setColor(features == null ? new Color(0xEE, 0xEE, 0xEE) : Color.WHITE);
+        g.fill(body);
+        g.setColor(Color.GRAY);
+        g.draw(body);
+        if (features == null) {
+            g.dispose();
+            return image;
+        }
+        rendered++;
+
+        int count = features.length > 0 ? features[0] + 1 : 1;
+        Color color = features.length > 1 ? color(features[1]) : Color.BLACK;
+        int shape = features.length > 2 ? features[2] : 0;
+        int fill = features.length > 3 ? features[3] : 0;
+
+        // the shapes, side by side
+        int marksHeight = features.length > 4 ? 3 * margin : 0;
+        double slotWidth = (width - 4.0 * margin) / count;
+        double shapeWidth = Math.min(slotWidth * 0.75, (height - 6.0 * margin - marksHeight) * 0.6);
+        double shapeHeight = Math.min(height - 6.0 * margin - marksHeight, shapeWidth * 1.8);
+        double top = (height - marksHeight - shapeHeight) / 2;
+        for (int i = 0; i < count; i++) {
+            double left = 2 * margin + slotWidth * i + (slotWidth - shapeWidth) / 2;
+            Shape s = shape(shape, left, top, shapeWidth, shapeHeight);
+            paintFill(g, s, color, fill);
+            g.setColor(color);
+            g.setStroke(new BasicStroke(Math.max(1.5f, margin / 2f)));
+            g.draw(s);
+            paintRings(g, shape / 4, color, left, top, shapeWidth, shapeHeight);
+        }
+
+        // any further feature is a mark at the bottom (its position) with a shade (its value)
+        for (int i = 4; i < features.length; i++) {
+            float shade = 1f - (features[i] + 1f) / config.featureSize;
+            g.setColor(new Color(shade, shade, shade));
+            int size = 2 * margin;
+            int x = width / 2 + (i - 4 - (features.length - 4) / 2) * (size + margin) - size / 2;
+            g.fillOval(x, height - 2 * margin - size, size, size);
+            g.setColor(Color.BLACK);
+            g.drawOval(x, height - 2 * margin - size, size, size);
+        }
+
+        g.dispose();
+        return image;
+    }
+
+    private static Color color(int value) {
+        if (value < COLORS.length)
+            return COLORS[value];
+        return Color.getHSBColor((value * 0.618034f) % 1f, 0.8f, 0.7f); // well spread hues for big feature sizes
+    }
+
+    private static Shape shape(int value, double x, double y, double w, double h) {
+        switch (value % 4) {
+            case 0:
+                return new Ellipse2D.Double(x, y, w, h);
+            case 1: { // diamond
+                Path2D.Double p = new Path2D.Double();
+                p.moveTo(x + w / 2, y);
+                p.lineTo(x + w, y + h / 2);
+                p.lineTo(x + w / 2, y + h);
+                p.lineTo(x, y + h / 2);
+                p.closePath();
+                return p;
+            }
+            case 2:
+                return new RoundRectangle2D.Double(x, y, w, h, w / 4, w / 4);
+            default: { // triangle
+                Path2D.Double p = new Path2D.Double();
+                p.moveTo(x + w / 2, y);
+                p.lineTo(x + w, y + h);
+                p.lineTo(x, y + h);
+                p.closePath();
+                return p;
+            }
+        }
+    }
+
+    private void paintFill(Graphics2D g, Shape s, Color color, int fill) {
+        if (fill == 0) // outline only
+            return;
+        if (fill == config.featureSize - 1) { // solid
+            g.setColor(color);
+            g.fill(s);
+            return;
+        }
+        // stripes: horizontal, vertical and the two diagonals, then the same again with a wider gap
+        Shape clip = g.getClip();
+        g.clip(s);
+        g.setColor(color);
+        g.setStroke(new BasicStroke(1f));
+        Rectangle bounds = s.getBounds();
+        int direction = (fill - 1) % 4;
+        int gap = 3 + 2 * ((fill - 1) / 4);
+        int size = bounds.width + bounds.height;
+        for (int offset = 0; offset <= size; offset += gap) {
+            int x = bounds.x + offset, y = bounds.y + offset;
+            switch (direction) {
+                case 0:
+                    g.drawLine(bounds.x, y, bounds.x + bounds.width, y);
+                    break;
+                case 1:
+                    g.drawLine(x, bounds.y, x, bounds.y + bounds.height);
+                    break;
+                case 2:
+                    g.drawLine(x, bounds.y, x - size, bounds.y + size);
+                    break;
+                default:
+                    g.drawLine(x - bounds.height, bounds.y, x - bounds.height + size, bounds.y + size);
+                    break;
+            }
+        }
+        g.setClip(clip);
+    }
+
+    /**
+     * Draws rings stacked in the middle of a shape, telling apart the shapes past the four basic ones.
+     *
+     * @param rings - the number of rings (0 for none).
+     */
+    private static void paintRings(Graphics2D g, int rings, Color color, double x, double y, double w, double h) {
+        if (rings == 0)
+            return;
+        double size = Math.min(w / 3, h / (2 * rings + 1));
+        double top = y + (h - (2 * rings - 1) * size) / 2;
+        g.setStroke(new BasicStroke(1f));
+        for (int i = 0; i < rings; i++) {
+            Ellipse2D ring = new Ellipse2D.Double(x + (w - size) / 2, top + 2 * i * size, size, size);
+            g.setColor(Color.WHITE); // seen on a solid fill too
+            g.fill(ring);
+            g.setColor(color);
+            g.draw(ring);
+        }
+    }
+}
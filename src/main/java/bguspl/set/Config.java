@@ -7,6 +7,7 @@ import java.nio.file.InvalidPathException;
 import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Properties;
+import java.util.SplittableRandom;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,6 +22,26 @@ public class Config {
     public final long randomSpinMin;
     public final long randomSpinMax;
 
+    /**
+     * The seed all the game's randomness is derived from (see GameRandom), so a run can be reproduced
+     */
+    public final long seed;
+
+    /**
+     * Whether to measure the contention on the game's locks and monitors and log a report at the end of the game
+     */
+    public final boolean profileLocks;
+
+    /**
+     * The number of milliseconds between two samples of the monitors when profiling the locks
+     */
+    public final long lockSampleMillis;
+
+    /**
+     * A file to record the game's events into, for replaying the game (empty for none)
+     */
+    public final String journalFile;
+
     /**
      * The number of features on the cards (e.g. shape, color etc.)
      */
@@ -86,6 +107,61 @@ public class Config {
      */
     public final long endGamePauseMillies;
 
+    /**
+     * The number of games to play one after the other on the same table (0 for as many as until the window is closed)
+     */
+    public final int games;
+
+    /**
+     * The number of milliseconds to show the winners for before the next game starts
+     */
+    public final long rematchPauseMillis;
+
+    /**
+     * The most milliseconds to spend warming up the game's code before the first deal (0 for no warm-up)
+     */
+    public final long warmupMillis;
+
+    /**
+     * A file the dealer keeps a snapshot of the game in, to resume it after a crash (empty for none)
+     */
+    public final String checkpointFile;
+
+    /**
+     * The number of milliseconds between two snapshots of the game
+     */
+    public final long checkpointMillis;
+
+    /**
+     * A directory to keep the results of all the games in (empty for none)
+     */
+    public final String historyDirectory;
+
+    /**
+     * The strategy used by the computer players ("Random" presses random slots, "Solver" looks for real sets)
+     */
+    public final String computerStrategy;
+
+    /**
+     * The number of milliseconds a computer player "thinks" after finding a set and before pressing its keys
+     */
+    public final long computerThinkMillis;
+
+    /**
+     * The probability (between 0 and 1) that a computer player using the solver strategy submits a wrong set
+     */
+    public final double computerErrorRate;
+
+    /**
+     * The number of key presses per second a computer player generates (0 or less means unlimited)
+     */
+    public final double computerPressesPerSecond;
+
+    /**
+     * The number of key presses a computer player may save up and generate at once when pacing is enabled
+     */
+    public final int computerBurstSize;
+
     /**
      * The names of the players to display on the screen
      * Note: if there are more players than names, the remaining players will be called "Player 3", "Player 4", etc.
@@ -132,6 +208,32 @@ public class Config {
      */
     public final int fontSize;
 
+    /**
+     * How the cards are shown: Images (png resources), Procedural (drawn from their features) or Auto (images if there
+     * are png resources for this deck, drawn otherwise)
+     */
+    public final String cardRendering;
+
+    /**
+     * The maximum number of drawn card images kept in memory (Procedural card rendering only)
+     */
+    public final int cardImageCacheSize;
+
+    /**
+     * A single image resource packing all the card images (empty to load every card from its own png)
+     */
+    public final String cardAtlas;
+
+    /**
+     * Whether to decode the card images in parallel in the background (otherwise each one is decoded when first dealt)
+     */
+    public final boolean preloadCardImages;
+
+    /**
+     * The number of times per second the pending display updates are rendered
+     */
+    public final int uiFramesPerSecond;
+
     /**
      * The scancodes of the keyboard input data for each player
      * Notes:
@@ -192,6 +294,11 @@ public class Config {
         randomSpinMax = Long.parseLong(properties.getProperty("RandomSpinMax", "0"));
         if (randomSpinMax < randomSpinMin || randomSpinMin < 0)
             logger.severe("invalid random spin cycles: max: " + randomSpinMax + " min: " + randomSpinMin);
+        String seedString = properties.getProperty("Seed", "").trim();
+        seed = seedString.isEmpty() ? new SplittableRandom().nextLong() : Long.parseLong(seedString);
+        profileLocks = Boolean.parseBoolean(properties.getProperty("ProfileLocks", "False"));
+        lockSampleMillis = Long.parseLong(properties.getProperty("LockSampleMillis", "10"));
+        journalFile = properties.getProperty("JournalFile", "").trim();
 
         // cards settings
         featureSize = Integer.parseInt(properties.getProperty("FeatureSize", "3"));
@@ -210,6 +317,21 @@ public class Config {
         penaltyFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PenaltyFreezeSeconds", "3")) * 1000.0);
         tableDelayMillis = (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
         endGamePauseMillies = (long) (Double.parseDouble(properties.getProperty("EndGamePauseSeconds", "5")) * 1000.0);
+        games = Integer.parseInt(properties.getProperty("Games", "1"));
+        rematchPauseMillis = (long) (Double.parseDouble(properties.getProperty("RematchPauseSeconds", "1")) * 1000.0);
+        warmupMillis = (long) (Double.parseDouble(properties.getProperty("WarmupSeconds", "0")) * 1000.0);
+        checkpointFile = properties.getProperty("CheckpointFile", "").trim();
+        checkpointMillis = (long) (Double.parseDouble(properties.getProperty("CheckpointSeconds", "5")) * 1000.0);
+        historyDirectory = properties.getProperty("HistoryDirectory", "").trim();
+
+        // computer players settings
+        computerStrategy = properties.getProperty("ComputerStrategy", "Random").trim();
+        computerThinkMillis = (long) (Double.parseDouble(properties.getProperty("ComputerThinkSeconds", "0")) * 1000.0);
+        computerErrorRate = Double.parseDouble(properties.getProperty("ComputerErrorRate", "0"));
+        if (computerErrorRate < 0 || computerErrorRate > 1)
+            logger.severe("invalid computer error rate: " + computerErrorRate);
+        computerPressesPerSecond = Double.parseDouble(properties.getProperty("ComputerPressesPerSecond", "0"));
+        computerBurstSize = Integer.parseInt(properties.getProperty("ComputerBurstSize", "1"));
 
         // ui settings
         String[] names = properties.getProperty("PlayerNames", "Player 1, Player 2").split(",");
@@ -224,6 +346,11 @@ public class Config {
         playerCellWidth = Integer.parseInt(properties.getProperty("PlayerCellWidth", "300"));
         playerCellHeight = Integer.parseInt(properties.getProperty("PlayerCellHeight", "40"));
         fontSize = Integer.parseInt(properties.getProperty("FontSize", "40"));
+        uiFramesPerSecond = Integer.parseInt(properties.getProperty("UiFramesPerSecond", "60"));
+        cardRendering = properties.getProperty("CardRendering", "Auto").trim();
+        cardImageCacheSize = Integer.parseInt(properties.getProperty("CardImageCacheSize", "128"));
+        cardAtlas = properties.getProperty("CardAtlas", "").trim();
+        preloadCardImages = Boolean.parseBoolean(properties.getProperty("PreloadCardImages", "True"));
 
         // keyboard input data
         playerKeys = new int[players][rows * columns];
@@ -8,11 +8,27 @@ public class Env {
     public final Config config;
     public final UserInterface ui;
     public final Util util;
+    public final KeyLatency keyLatency;
+    public final GameRandom random;
 
     public Env(Logger logger, Config config, UserInterface ui, Util util) {
+        this(logger, config, ui, util, new KeyLatency(config.players, config.tableSize));
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, KeyLatency keyLatency) {
+        this(logger, config, ui, util, keyLatency,
+                util instanceof UtilImpl ? ((UtilImpl) util).random() : new GameRandom(config));
+    }
+
+    /**
+     * @param random - the game's random streams, the one source of the game's randomness (the util's too).
+     */
+    public Env(Logger logger, Config config, UserInterface ui, Util util, KeyLatency keyLatency, GameRandom random) {
         this.logger = logger;
         this.config = config;
         this.ui = ui;
         this.util = util;
+        this.keyLatency = keyLatency;
+        this.random = random;
     }
 }
@@ -0,0 +1,130 @@
+package bguspl.set;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * Java Flight Recorder events of the game lifecycle, for seeing in JDK Mission Control where the time goes between a
+ * token placement and a verdict. Events are recorded only while a recording is running (e.g. started with
+ * -XX:StartFlightRecording), and otherwise cost only a shouldCommit check (the event object is normally optimized
+ * away). UiCall fires on every timer tick, so it is off unless the recording enables it explicitly.
+ * The claim and ui events time the work itself: ClaimVerified ends with the verdict (the removal of a legal set is a
+ * field of its own), and UiCall is the update applied to the Swing ui on the event thread (see UserInterfaceAsync).
+ * Requires a JDK with Flight Recorder (11+, or 8u262+).
+ */
+public final class GameEvents {
+
+    private GameEvents() {
+    }
+
+    @Name("bguspl.set.ClaimSubmitted")
+    @Label("Claim Submitted")
+    @Category({"Set Game", "Claims"})
+    @Description("A player placed its last token and asked the dealer to check its set")
+    @StackTrace(false)
+    public static class ClaimSubmitted extends Event {
+        @Label("Player")
+        public int player;
+        @Label("Slots")
+        public String slots;
+    }
+
+    @Name("bguspl.set.ClaimVerified")
+    @Label("Claim Verified")
+    @Category({"Set Game", "Claims"})
+    @Description("The dealer checked a claimed set (the duration is the check itself)")
+    @StackTrace(false)
+    public static class ClaimVerified extends Event {
+        @Label("Player")
+        public int player;
+        @Label("Slots")
+        public String slots;
+        @Label("Result")
+        @Description("0 - wrong set, 1 - legal set, 2 - a token was removed before the check")
+        public int result;
+        @Label("Queue Wait")
+        @Timespan(Timespan.NANOSECONDS)
+        public long queueWait;
+        @Label("Removal")
+        @Description("The time to remove a legal set from the table and deal in its place, after the check")
+        @Timespan(Timespan.NANOSECONDS)
+        public long removal;
+    }
+
+    @Name("bguspl.set.CardPlaced")
+    @Label("Card Placed")
+    @Category({"Set Game", "Table"})
+    @StackTrace(false)
+    public static class CardPlaced extends Event {
+        @Label("Slot")
+        public int slot;
+        @Label("Card")
+        public int card;
+    }
+
+    @Name("bguspl.set.CardRemoved")
+    @Label("Card Removed")
+    @Category({"Set Game", "Table"})
+    @StackTrace(false)
+    public static class CardRemoved extends Event {
+        @Label("Slot")
+        public int slot;
+        @Label("Card")
+        public int card;
+    }
+
+    @Name("bguspl.set.Reshuffle")
+    @Label("Reshuffle")
+    @Category({"Set Game", "Table"})
+    @Description("All the cards were returned to the deck and a new table was dealt")
+    @StackTrace(false)
+    public static class Reshuffle extends Event {
+        @Label("Cards Returned")
+        public int cards;
+    }
+
+    @Name("bguspl.set.Freeze")
+    @Label("Freeze")
+    @Category({"Set Game", "Players"})
+    @Description("A player was frozen after a point or a penalty")
+    @StackTrace(false)
+    public static class Freeze extends Event {
+        @Label("Player")
+        public int player;
+        @Label("Penalty")
+        public boolean penalty;
+    }
+
+    @Name("bguspl.set.UiCall")
+    @Label("UI Call")
+    @Category({"Set Game", "UI"})
+    @Description("An update applied to the Swing ui on the event thread (the repaint it requests comes later)")
+    @StackTrace(false)
+    @Enabled(false)
+    public static class UiCall extends Event {
+        @Label("Method")
+        public String method;
+        @Label("Player")
+        @Description("-1 if the call is not about a player")
+        public int player;
+        @Label("Slot")
+        @Description("-1 if the call is not about a slot")
+        public int slot;
+    }
+
+    /**
+     * Formats slots for the events (only called when the event is going to be committed).
+     */
+    public static String slots(Iterable<Integer> slots) {
+        StringBuilder sb = new StringBuilder();
+        for (Integer slot : slots)
+            sb.append(sb.length() == 0 ? "" : ",").append(slot);
+        return sb.toString();
+    }
+}
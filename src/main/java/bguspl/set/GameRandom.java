@@ -0,0 +1,82 @@
+package bguspl.set;
+
+import java.util.SplittableRandom;
+
+/**
+ * The game's random streams, all derived from the one seed of the configuration (Seed=...), so the same seed and
+ * configuration deal the same cards in the same slots and make the computer players press the same keys.
+ * <p>
+ * Every stream has a single user, so what one thread draws never changes what another one gets: the dealer draws
+ * the cards from the deck stream and the slots from the slot stream, and each computer player draws from its own
+ * stream. The streams are split from a root stream in a fixed order, which is what makes them independent of each
+ * other and the same in every run.
+ */
+public class GameRandom {
+
+    private final long seed;
+    private final SplittableRandom deck;
+    private final SplittableRandom slots;
+    private final SplittableRandom[] computers;
+    private final SplittableRandom spins;
+    private final ThreadLocal<SplittableRandom> spin;
+
+    /**
+     * @param seed    - the seed of all the streams.
+     * @param players - the number of players (each one gets a stream).
+     */
+    public GameRandom(long seed, int players) {
+        this.seed = seed;
+        SplittableRandom root = new SplittableRandom(seed);
+        deck = root.split();
+        slots = root.split();
+        computers = new SplittableRandom[players];
+        for (int player = 0; player < players; player++)
+            computers[player] = root.split();
+        spins = root.split();
+        spin = ThreadLocal.withInitial(() -> {
+            synchronized (spins) {
+                return spins.split();
+            }
+        });
+    }
+
+    public GameRandom(Config config) {
+        this(config.seed, config.players);
+    }
+
+    /**
+     * @return - the seed all the streams were derived from.
+     */
+    public long seed() {
+        return seed;
+    }
+
+    /**
+     * @return - the stream that picks the next card out of the deck (dealer thread only).
+     */
+    public SplittableRandom deck() {
+        return deck;
+    }
+
+    /**
+     * @return - the stream that picks the empty slot the next card goes to (dealer thread only).
+     */
+    public SplittableRandom slots() {
+        return slots;
+    }
+
+    /**
+     * @return - the stream of a computer player (its artificial intelligence thread only).
+     */
+    public SplittableRandom computer(int player) {
+        return computers[player];
+    }
+
+    /**
+     * @return - the stream of the calling thread for Util::spin. Spins only perturb the timing, so which thread gets
+     * which stream (the order the threads first spin in) does not matter.
+     */
+    public SplittableRandom spin() {
+        return spin.get();
+    }
+}
@@ -0,0 +1,463 @@
+package bguspl.set;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+
+import static java.lang.String.format;
+
+/**
+ * The panels of the Swing user interface (timer, cards grid, players and winner), and the drawing of all the
+ * UserInterface calls on them. It does not need a window, so it can also be rendered offscreen (e.g. when headless).
+ * Must be used from the Swing event thread only.
+ */
+class GameScreen extends JPanel implements UserInterface {
+
+    private final TimerPanel timerPanel;
+    private final GamePanel gamePanel;
+    private final PlayersPanel playersPanel;
+    private final WinnerPanel winnerPanel;
+    private final Config config;
+    private final Logger logger;
+    private final long createdNanos = System.nanoTime(); // for measuring the startup time
+    private final Rectangle damage = new Rectangle(); // the area changed since the last takeDamage (empty if none)
+    private boolean trackingDamage; // off in the game, only the render benchmark reads the changed area
+    private final KeyLatency keyLatency;
+
+    GameScreen(Logger logger, Config config) {
+        this(logger, config, new KeyLatency(config.players, config.tableSize));
+    }
+
+    GameScreen(Logger logger, Config config, KeyLatency keyLatency) {
+
+        this.config = config;
+        this.logger = logger;
+        this.keyLatency = keyLatency;
+        timerPanel = new TimerPanel();
+        gamePanel = new GamePanel();
+        playersPanel = new PlayersPanel();
+        winnerPanel = new WinnerPanel();
+
+        setLayout(new GridBagLayout());
+        GridBagConstraints gbc = new GridBagConstraints();
+        gbc.gridx = 0;
+        gbc.gridy = 0;
+        gbc.weightx = 1;
+        gbc.fill = GridBagConstraints.CENTER;
+        gbc.gridwidth = GridBagConstraints.REMAINDER;
+
+        add(timerPanel, gbc);
+        gbc.gridy++;
+        add(gamePanel, gbc);
+        gbc.gridy++;
+        add(playersPanel, gbc);
+        gbc.gridy++;
+        add(winnerPanel, gbc);
+        gbc.gridwidth = 1;
+    }
+
+    private class TimerPanel extends JPanel {
+
+        private final JLabel timerField;
+
+        private String generateTime(long millies, boolean warn) {
+            if (warn)
+                return format("Remaining Time: %.2f", (double) millies / 1000.0f);
+            else
+                return format("Remaining Time: %d", millies / 1000L);
+        }
+
+        private TimerPanel() {
+            timerField = new JLabel(config.turnTimeoutMillis < 0 ? "PLAY" : "GET READY...");
+
+            // set fonts and color
+            timerField.setFont(new Font("Serif", Font.BOLD, config.fontSize));
+            timerField.setForeground(Color.BLACK);
+
+            add(timerField);
+        }
+
+        private void setCountdown(long millies, boolean warn) {
+            timerField.setText(generateTime(millies, warn));
+            damage(this, null);
+            timerField.setForeground(warn ? Color.RED : Color.BLACK);
+        }
+
+        private void setElapsed(long millies) {
+            timerField.setText("Elapsed time: " + millies / 1000);
+            damage(this, null);
+        }
+    }
+
+    private class GamePanel extends JLayeredPane {
+
+        private static final int EMPTY_CELL = -1;
+
+        private final CardImages cardImages;
+        private final int[][] grid; // card per cell, EMPTY_CELL if none
+        private final Image[] deckCells; // deck images converted to cell sized compatible images (lazily)
+        private Image emptyCell;
+        private final long[][] tokenMasks; // per slot, bitmask of the players with a token (64 players a long)
+        private final JLabel[][] tokenText;
+        private final Map<Long, String> tokenTextCache = new HashMap<>(); // overlay text per one long bitmask
+        private boolean firstFramePainted;
+
+        private GamePanel() {
+
+            setPreferredSize(new Dimension(config.columns * config.cellWidth, config.rows * config.cellHeight));
+
+            // card images are decoded lazily (or from one atlas, or drawn), not all of them before the window shows
+            cardImages = new CardImages(logger, config);
+
+            deckCells = new Image[config.deckSize];
+            grid = new int[config.rows][config.columns];
+            tokenText = new JLabel[config.rows][config.columns];
+            tokenMasks = new long[config.tableSize][(config.players + Long.SIZE - 1) / Long.SIZE];
+            for (int row = 0; row < config.rows; row++) {
+                for (int column = 0; column < config.columns; column++) {
+                    // init the cards on the table grid as empty cards
+                    grid[row][column] = EMPTY_CELL;
+
+                    // init the JLabel selection overlay
+                    tokenText[row][column] = new TokenLabel(row * config.columns + column);
+                    tokenText[row][column].setVerticalAlignment(JLabel.TOP);
+                    tokenText[row][column].setHorizontalAlignment(JLabel.CENTER);
+                    tokenText[row][column].setOpaque(false);
+                    tokenText[row][column].setBorder(BorderFactory.createLineBorder(Color.black));
+                    tokenText[row][column].setBounds((column * config.cellWidth), (row * config.cellHeight), config.cellWidth, config.cellHeight);
+                    add(tokenText[row][column]);
+                }
+            }
+        }
+
+        private void placeCard(int slot, int card) {
+            int row = slot / config.columns;
+            int column = slot % config.columns;
+            grid[row][column] = card;
+            repaintCell(row, column);
+        }
+
+        private void removeCard(int slot) {
+            int row = slot / config.columns;
+            int column = slot % config.columns;
+            grid[row][column] = EMPTY_CELL;
+            repaintCell(row, column);
+        }
+
+        /**
+         * Repaints only the bounds of one cell (the layout does not change when cards change).
+         */
+        private void repaintCell(int row, int column) {
+            Rectangle cell = new Rectangle(column * config.cellWidth, row * config.cellHeight, config.cellWidth, config.cellHeight);
+            repaint(cell);
+            damage(this, cell);
+        }
+
+        /**
+         * Returns the cell sized image in the display's native format for a card, converting it on first use
+         * so painting a cell is a plain copy rather than a scale and a format conversion.
+         */
+        private Image cellImage(int card) {
+            if (card == EMPTY_CELL) {
+                if (emptyCell == null)
+                    emptyCell = toCompatibleImage(cardImages.emptyCard());
+                return emptyCell;
+            }
+            if (cardImages.procedural()) // already cell sized, and cached in a bounded cache
+                return cardImages.card(card);
+            if (deckCells[card] == null)
+                deckCells[card] = toCompatibleImage(cardImages.card(card));
+            return deckCells[card];
+        }
+
+        private Image toCompatibleImage(Image image) {
+            BufferedImage cell;
+            GraphicsConfiguration gc = getGraphicsConfiguration();
+            if (gc != null)
+                cell = gc.createCompatibleImage(config.cellWidth, config.cellHeight, Transparency.TRANSLUCENT);
+            else
+                cell = new BufferedImage(config.cellWidth, config.cellHeight, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = cell.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.drawImage(image, 0, 0, config.cellWidth, config.cellHeight, null);
+            g.dispose();
+            return cell;
+        }
+
+        private void placeToken(int player, int slot) {
+            setToken(player, slot, true);
+        }
+
+        private void removeTokens() {
+            for (int i = 0; i < config.tableSize; i++)
+                removeTokens(i);
+        }
+
+        private void removeTokens(int slot) {
+            long[] mask = tokenMasks[slot];
+            boolean changed = false;
+            for (int word = 0; word < mask.length; word++) {
+                for (long players = mask[word]; players != 0; players &= players - 1)
+                    keyLatency.shown(word * Long.SIZE + Long.numberOfTrailingZeros(players), slot);
+                changed |= mask[word] != 0;
+                mask[word] = 0;
+            }
+            if (changed)
+                showTokens(slot);
+        }
+
+        private void removeToken(int player, int slot) {
+            setToken(player, slot, false);
+        }
+
+        private void setToken(int player, int slot, boolean on) {
+            long[] mask = tokenMasks[slot];
+            int word = player / Long.SIZE;
+            long bit = 1L << player;
+            if (((mask[word] & bit) != 0) == on)
+                return;
+            mask[word] ^= bit;
+            keyLatency.shown(player, slot);
+            showTokens(slot);
+        }
+
+        private void showTokens(int slot) {
+            long[] mask = tokenMasks[slot];
+            JLabel label = tokenText[slot / config.columns][slot % config.columns];
+            if (mask.length == 1) // up to 64 players, the text of each bitmask is built once
+                label.setText(tokenTextCache.computeIfAbsent(mask[0], players -> generatePlayersTokenText(mask)));
+            else
+                label.setText(generatePlayersTokenText(mask));
+            damage(label, null);
+        }
+
+        /**
+         * Builds the overlay text of a set of players.
+         */
+        private String generatePlayersTokenText(long[] mask) {
+            StringJoiner text = new StringJoiner(", ");
+            for (int player = 0; player < config.players; player++) {
+                if ((mask[player / Long.SIZE] & (1L << player)) != 0)
+                    text.add(config.playerNames[player]);
+            }
+            return text.toString();
+        }
+
+        @Override
+        public void paintComponent(Graphics g) {
+            if (!firstFramePainted) {
+                firstFramePainted = true;
+                logger.info(format("first frame painted %.1f ms after the ui was created (%d card images decoded).",
+                        (System.nanoTime() - createdNanos) / 1_000_000.0, cardImages.decoded()));
+            }
+            // draw only the card images inside the area being repainted
+            Rectangle clip = g.getClipBounds();
+            int firstRow = 0, lastRow = config.rows - 1, firstColumn = 0, lastColumn = config.columns - 1;
+            if (clip != null) {
+                firstRow = Math.max(firstRow, clip.y / config.cellHeight);
+                lastRow = Math.min(lastRow, (clip.y + clip.height - 1) / config.cellHeight);
+                firstColumn = Math.max(firstColumn, clip.x / config.cellWidth);
+                lastColumn = Math.min(lastColumn, (clip.x + clip.width - 1) / config.cellWidth);
+            }
+            for (int row = firstRow; row <= lastRow; row++)
+                for (int column = firstColumn; column <= lastColumn; column++)
+                    g.drawImage(cellImage(grid[row][column]), (column * config.cellWidth), (row * config.cellHeight), this);
+        }
+    }
+
+    /**
+     * The token overlay of a cell, which ends the latency trace of the key presses on its slot when painted.
+     */
+    private class TokenLabel extends JLabel {
+
+        private final int slot;
+
+        private TokenLabel(int slot) {
+            super("");
+            this.slot = slot;
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            super.paintComponent(g);
+            keyLatency.painted(slot);
+        }
+    }
+
+    private class PlayersPanel extends JPanel {
+
+        private final JLabel[][] playersTable;
+
+        private PlayersPanel() {
+            this.setLayout(new GridLayout(2, config.players));
+            this.setPreferredSize(new Dimension(config.players * config.playerCellWidth, config.rows * config.playerCellHeight));
+            this.playersTable = new JLabel[2][config.players];
+            for (int i = 0; i < config.players; i++) {
+                this.playersTable[0][i] = new JLabel(config.playerNames[i]);
+                this.playersTable[0][i].setFont(new Font("Serif", Font.BOLD, config.fontSize));
+                this.playersTable[0][i].setHorizontalAlignment(JLabel.CENTER);
+                this.add(playersTable[0][i]);
+            }
+
+            for (int i = 0; i < config.players; i++) {
+                this.playersTable[1][i] = new JLabel("0");
+                this.playersTable[1][i].setFont(new Font("Serif", Font.PLAIN, config.fontSize));
+                this.playersTable[1][i].setHorizontalAlignment(JLabel.CENTER);
+                this.add(playersTable[1][i]);
+            }
+        }
+
+        private void setFreeze(int player, long millies) {
+            if (millies > 0) {
+                this.playersTable[0][player].setText(config.playerNames[player] + " (" + millies / 1000 + ")");
+                this.playersTable[0][player].setForeground(Color.RED);
+            } else {
+                this.playersTable[0][player].setText(config.playerNames[player]);
+                this.playersTable[0][player].setForeground(Color.BLACK);
+            }
+            damage(playersTable[0][player], null);
+        }
+
+        private void setScore(int player, int score) {
+            playersTable[1][player].setText(Integer.toString(score));
+            damage(playersTable[1][player], null);
+        }
+    }
+
+    private class WinnerPanel extends JPanel {
+
+        private final JLabel winnerAnnouncement;
+
+        public WinnerPanel() {
+            this.setVisible(false);
+
+            this.winnerAnnouncement = new JLabel();
+            this.winnerAnnouncement.setFont(new Font("Serif", Font.BOLD, config.fontSize));
+            this.winnerAnnouncement.setHorizontalAlignment(JLabel.CENTER);
+            this.winnerAnnouncement.setSize(config.cellWidth, config.cellHeight);
+            add(winnerAnnouncement);
+        }
+
+        private void announceWinner(int[] players) {
+            String text;
+            List<String> names = Arrays.stream(players).mapToObj(id -> config.playerNames[id]).collect(Collectors.toList());
+            if (players.length == 1) text = "THE WINNER IS: " + names.get(0) + "!!!";
+            else text = "IT IS A DRAW: " + String.join(" AND ", names) + " WON!!!";
+            winnerAnnouncement.setText(text);
+            timerPanel.setVisible(false);
+        }
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        gamePanel.placeCard(slot, card);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        gamePanel.removeCard(slot);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        gamePanel.placeToken(player, slot);
+    }
+
+    @Override
+    public void removeTokens() {
+        gamePanel.removeTokens();
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        gamePanel.removeTokens(slot);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        gamePanel.removeToken(player, slot);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        timerPanel.setCountdown(millies, warn);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        timerPanel.setElapsed(millies);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        playersPanel.setFreeze(player, millies);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        playersPanel.setScore(player, score);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        playersPanel.setVisible(false);
+        winnerPanel.announceWinner(players);
+        winnerPanel.setVisible(true);
+        damage(this, null);
+    }
+
+    @Override
+    public void newGame() {
+        winnerPanel.setVisible(false);
+        playersPanel.setVisible(true);
+        timerPanel.setVisible(true);
+        damage(this, null);
+    }
+
+    /**
+     * Adds an area of a component to the changed area of the screen.
+     *
+     * @param component - the component that changed.
+     * @param area      - the area in the component's coordinates, or null for the whole component.
+     */
+    private void damage(Component component, Rectangle area) {
+        if (!trackingDamage)
+            return;
+        Rectangle bounds = area != null ? area : new Rectangle(0, 0, component.getWidth(), component.getHeight());
+        bounds = SwingUtilities.convertRectangle(component, bounds, this);
+        if (damage.isEmpty())
+            damage.setBounds(bounds);
+        else
+            damage.add(bounds);
+    }
+
+    /**
+     * Starts keeping the area of the screen changed by the updates, for takeDamage.
+     */
+    void trackDamage() {
+        trackingDamage = true;
+    }
+
+    /**
+     * Returns the area of the screen changed since the previous call (see trackDamage), so it can be repainted (or measured) alone.
+     *
+     * @return - the changed area in the screen's coordinates (empty if nothing changed).
+     */
+    Rectangle takeDamage() {
+        Rectangle taken = new Rectangle(damage);
+        damage.setBounds(0, 0, 0, 0);
+        return taken;
+    }
+
+    @Override
+    public void dispose() {
+        // nothing to release, the window is disposed by UserInterfaceSwing
+    }
+}
@@ -0,0 +1,283 @@
+package bguspl.set;
+
+import bguspl.set.ex.LatencyHistogram;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.ToDoubleFunction;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Measures how long a key press takes to show on the screen, per player and per stage:
+ * <ul>
+ * <li>queue - from the press (InputManager.keyPressed for humans, the AI thread for computers) until the player thread
+ * takes it,</li>
+ * <li>table - until the token was placed (or removed) on the table and the user interface was told,</li>
+ * <li>ui - until the screen applied it on the Swing event thread,</li>
+ * <li>paint - until the cell of the token was painted,</li>
+ * <li>total - from the press until the paint.</li>
+ * </ul>
+ * A press is followed by the (player, slot) pair it is about: each stage takes the time the previous stage left for
+ * the pair and leaves its own, so no timestamp has to travel with the press through the queues. A press that gets no
+ * further (e.g. the gate closed in between) is overwritten by the next press on the same slot.
+ */
+public class KeyLatency implements KeyLatencyMBean {
+
+    /**
+     * The name the latencies are registered under.
+     */
+    public static final String OBJECT_NAME = "bguspl.set:type=KeyLatency";
+
+    private static final String[] STAGES = {"queue", "table", "ui", "paint", "total"};
+    private static final int QUEUE = 0, TABLE = 1, UI = 2, PAINT = 3, TOTAL = 4;
+
+    private final int players;
+    private final int slots;
+    private final AtomicLongArray pressed, taken, applied, shown, origin; // nanoTime per (player, slot), 0 if none
+    private final LatencyHistogram[][] histograms; // per stage, per player
+
+    /**
+     * @param players - the number of players.
+     * @param slots   - the number of slots on the table.
+     */
+    public KeyLatency(int players, int slots) {
+        this.players = players;
+        this.slots = slots;
+        pressed = new AtomicLongArray(players * slots);
+        taken = new AtomicLongArray(players * slots);
+        applied = new AtomicLongArray(players * slots);
+        shown = new AtomicLongArray(players * slots);
+        origin = new AtomicLongArray(players * slots);
+        histograms = new LatencyHistogram[STAGES.length][players];
+        for (LatencyHistogram[] stage : histograms)
+            for (int player = 0; player < players; player++)
+                stage[player] = new LatencyHistogram();
+    }
+
+    /**
+     * A key of the player was pressed and accepted.
+     */
+    public void pressed(int player, int slot) {
+        if (valid(player, slot))
+            pressed.set(index(player, slot), System.nanoTime());
+    }
+
+    /**
+     * The key press recorded last was dropped instead of queued, so it has no trace to time.
+     */
+    public void dropped(int player, int slot) {
+        if (valid(player, slot))
+            pressed.set(index(player, slot), 0);
+    }
+
+    /**
+     * The player thread took the key press out of its queue.
+     */
+    public void taken(int player, int slot) {
+        if (!valid(player, slot))
+            return;
+        int i = index(player, slot);
+        long start = pressed.getAndSet(i, 0);
+        if (start == 0)
+            return;
+        long now = System.nanoTime();
+        histograms[QUEUE][player].record(now - start);
+        origin.set(i, start);
+        taken.set(i, now);
+    }
+
+    /**
+     * The table placed or removed the token and called the user interface.
+     */
+    public void applied(int player, int slot) {
+        next(taken, applied, TABLE, player, slot);
+    }
+
+    /**
+     * The screen applied the token change (on the Swing event thread).
+     */
+    public void shown(int player, int slot) {
+        next(applied, shown, UI, player, slot);
+    }
+
+    /**
+     * The cell of the slot was painted, which ends the trace of every player's pending change on it.
+     */
+    public void painted(int slot) {
+        if (slot < 0 || slot >= slots)
+            return;
+        for (int player = 0; player < players; player++) {
+            int i = index(player, slot);
+            long start = shown.getAndSet(i, 0);
+            if (start == 0)
+                continue;
+            long now = System.nanoTime();
+            histograms[PAINT][player].record(now - start);
+            histograms[TOTAL][player].record(now - origin.getAndSet(i, 0));
+        }
+    }
+
+    private void next(AtomicLongArray from, AtomicLongArray to, int stage, int player, int slot) {
+        if (!valid(player, slot))
+            return;
+        int i = index(player, slot);
+        long start = from.getAndSet(i, 0);
+        if (start == 0)
+            return;
+        long now = System.nanoTime();
+        histograms[stage][player].record(now - start);
+        to.set(i, now);
+    }
+
+    private boolean valid(int player, int slot) {
+        return player >= 0 && player < players && slot >= 0 && slot < slots;
+    }
+
+    private int index(int player, int slot) {
+        return player * slots + slot;
+    }
+
+    /**
+     * @return - one line per player that pressed keys, with the median and 99th percentile of every stage.
+     */
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+        for (int player = 0; player < players; player++) {
+            if (histograms[QUEUE][player].count() == 0)
+                continue;
+            StringBuilder line = new StringBuilder(String.format("key latency of player %d (%d presses, ms p50/p99):",
+                    player, histograms[QUEUE][player].count()));
+            for (int stage = 0; stage < STAGES.length; stage++) {
+                LatencyHistogram histogram = histograms[stage][player];
+                if (histogram.count() > 0)
+                    line.append(String.format(" %s %.2f/%.2f", STAGES[stage], histogram.percentile(50) / 1e6,
+                            histogram.percentile(99) / 1e6));
+            }
+            lines.add(line.toString());
+        }
+        return lines;
+    }
+
+    /**
+     * Registers the latencies with the platform MBean server, replacing the ones of an earlier game in the same JVM.
+     *
+     * @param logger - for reporting a failure (the game goes on without the MBean).
+     */
+    public void register(Logger logger) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name))
+                server.unregisterMBean(name);
+            server.registerMBean(this, name);
+        } catch (JMException | SecurityException e) {
+            logger.warning("could not register the key latencies: " + e);
+        }
+    }
+
+    /**
+     * Removes the latencies from the platform MBean server.
+     *
+     * @param logger - for reporting a failure.
+     */
+    public void unregister(Logger logger) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name))
+                server.unregisterMBean(name);
+        } catch (JMException | SecurityException e) {
+            logger.warning("could not unregister the key latencies: " + e);
+        }
+    }
+
+    private double[] perPlayer(int stage, ToDoubleFunction<LatencyHistogram> value) {
+        double[] result = new double[players];
+        for (int player = 0; player < players; player++)
+            result[player] = value.applyAsDouble(histograms[stage][player]);
+        return result;
+    }
+
+    private static double p50(LatencyHistogram histogram) {
+        return histogram.percentile(50) / 1e6;
+    }
+
+    private static double p99(LatencyHistogram histogram) {
+        return histogram.percentile(99) / 1e6;
+    }
+
+    @Override
+    public long[] getPresses() {
+        long[] result = new long[players];
+        for (int player = 0; player < players; player++)
+            result[player] = histograms[QUEUE][player].count();
+        return result;
+    }
+
+    @Override
+    public double[] getQueueP50Millis() {
+        return perPlayer(QUEUE, KeyLatency::p50);
+    }
+
+    @Override
+    public double[] getQueueP99Millis() {
+        return perPlayer(QUEUE, KeyLatency::p99);
+    }
+
+    @Override
+    public double[] getTableP50Millis() {
+        return perPlayer(TABLE, KeyLatency::p50);
+    }
+
+    @Override
+    public double[] getTableP99Millis() {
+        return perPlayer(TABLE, KeyLatency::p99);
+    }
+
+    @Override
+    public double[] getUiP50Millis() {
+        return perPlayer(UI, KeyLatency::p50);
+    }
+
+    @Override
+    public double[] getUiP99Millis() {
+        return perPlayer(UI, KeyLatency::p99);
+    }
+
+    @Override
+    public double[] getPaintP50Millis() {
+        return perPlayer(PAINT, KeyLatency::p50);
+    }
+
+    @Override
+    public double[] getPaintP99Millis() {
+        return perPlayer(PAINT, KeyLatency::p99);
+    }
+
+    @Override
+    public double[] getTotalP50Millis() {
+        return perPlayer(TOTAL, KeyLatency::p50);
+    }
+
+    @Override
+    public double[] getTotalP99Millis() {
+        return perPlayer(TOTAL, KeyLatency::p99);
+    }
+
+    @Override
+    public double[] getTotalMaxMillis() {
+        return perPlayer(TOTAL, histogram -> histogram.max() / 1e6);
+    }
+
+    @Override
+    public void reset() {
+        for (LatencyHistogram[] stage : histograms)
+            for (LatencyHistogram histogram : stage)
+                histogram.reset();
+    }
+}
@@ -0,0 +1,37 @@
+package bguspl.set;
+
+/**
+ * The management interface of the key press latencies, as shown in JConsole / VisualVM under
+ * bguspl.set:type=KeyLatency. Every array is indexed by the player id, and all the times are in milliseconds.
+ */
+public interface KeyLatencyMBean {
+
+    long[] getPresses();
+
+    double[] getQueueP50Millis();
+
+    double[] getQueueP99Millis();
+
+    double[] getTableP50Millis();
+
+    double[] getTableP99Millis();
+
+    double[] getUiP50Millis();
+
+    double[] getUiP99Millis();
+
+    double[] getPaintP50Millis();
+
+    double[] getPaintP99Millis();
+
+    double[] getTotalP50Millis();
+
+    double[] getTotalP99Millis();
+
+    double[] getTotalMaxMillis();
+
+    /**
+     * Clears all the histograms.
+     */
+    void reset();
+}
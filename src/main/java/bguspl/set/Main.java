@@ -1,13 +1,14 @@
 package bguspl.set;
 import bguspl.set.ex.Dealer;
+import bguspl.set.ex.GameCheckpoint;
 import bguspl.set.ex.Player;
 import bguspl.set.ex.Table;
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Calendar;
-import java.util.Date;
 import java.util.logging.*;
 
 /**
@@ -21,6 +22,11 @@ public class Main {
     private static boolean xButtonPressed = false;
     private static Logger logger;
 
+    /**
+     * The number of log records that can wait to be written before new ones are dropped.
+     */
+    private static final int LOG_BUFFER_SIZE = 1 << 16;
+
     public static void xButtonPressed() throws InterruptedException {
         if (logger != null) logger.severe("Exit button pressed");
         xButtonPressed = true;
@@ -31,7 +37,7 @@ public class Main {
     /**
      * The game's main function. Creates all data structures and initializes the threads.
      *
-     * @param args - unused.
+     * @param args - "--resume" to continue the game saved in the checkpoint file (see CheckpointFile).
      */
     public static void main(String[] args) {
 
@@ -41,11 +47,15 @@ public class Main {
         logger = initLogger();
         ThreadLogger.logStart(logger, Thread.currentThread().getName());
         Config config = new Config(logger, "config.properties");
-        Util util = new UtilImpl(config);
+        GameRandom random = new GameRandom(config);
+        Util util = new UtilImpl(config, random);
         Player[] players = new Player[config.players];
+        KeyLatency keyLatency = new KeyLatency(config.players, config.tableSize);
+        keyLatency.register(logger);
         UserInterface ui = null;
         try {
-            ui = new UserInterfaceSwing(logger, config, players);
+            ui = new UserInterfaceSwing(logger, config, players, keyLatency);
+            ui = new UserInterfaceAsync(logger, config, ui); // render on the swing thread, off the game locks
         } catch (UnsupportedOperationException | IllegalArgumentException e) {
             logger.severe("error creating swing user interface: " + e.getMessage());
             logger.severe("will try to run without user interface");
@@ -53,13 +63,15 @@ public class Main {
                 logger.severe("warning: running with human players with no user interface");
         }
         ui = new UserInterfaceDecorator(logger, util, ui);
-        Env env = new Env(logger, config, ui, util);
+        Env env = new Env(logger, config, ui, util, keyLatency, random);
 
         // create the game entities
         Table table = new Table(env);
         dealer = new Dealer(env, table, players);
         for (int i = 0; i < players.length; i++)
             players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
+        if (args.length > 0 && args[0].equals("--resume"))
+            resume(config);
 
         // start the dealer thread
         ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger);
@@ -75,7 +87,29 @@ public class Main {
             System.out.println("Thanks for playing... it was fun!");
             ThreadLogger.logStop(logger, Thread.currentThread().getName());
             if (!xButtonPressed) env.ui.dispose();
-            for (Handler h : logger.getHandlers()) h.flush();
+            keyLatency.report().forEach(logger::info);
+            keyLatency.unregister(logger);
+            for (Handler h : logger.getHandlers()) h.close(); // writes the remaining records
+        }
+    }
+
+    /**
+     * Has the dealer continue the game of the checkpoint file, or logs why it cannot (and a new game starts).
+     */
+    private static void resume(Config config) {
+        if (config.checkpointFile.isEmpty()) {
+            logger.severe("cannot resume: no CheckpointFile is configured, starting a new game");
+            return;
+        }
+        try {
+            GameCheckpoint.State state = GameCheckpoint.read(Paths.get(config.checkpointFile));
+            String mismatch = state.mismatch(config);
+            if (mismatch != null)
+                logger.severe("cannot resume " + config.checkpointFile + ": " + mismatch + ", starting a new game");
+            else
+                dealer.resume(state);
+        } catch (IOException e) {
+            logger.severe("cannot resume " + config.checkpointFile + ": " + e + ", starting a new game");
         }
     }
 
@@ -83,11 +117,12 @@ public class Main {
 
         //just to make our log file nicer :)
         SimpleDateFormat format = new SimpleDateFormat("M-d_HH-mm-ss");
-        FileHandler handler;
+        Handler handler;
         try {
             //noinspection ResultOfMethodCallIgnored
             new File("./logs/").mkdirs();
-            handler = new FileHandler("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log");
+            // records are formatted and written by a background thread, so game threads don't wait for the file
+            handler = new AsyncLogHandler("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log", LOG_BUFFER_SIZE);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -104,9 +139,10 @@ public class Main {
         Handler[] handlers = logger.getHandlers();
         if (handlers != null) Arrays.stream(handlers).forEach(h -> h.setFormatter(new SimpleFormatter() {
             // default format (with timestamp)  = "[%1$tF %1$tT] [%2$-7s] %3$s%n";
+            // not synchronized: each handler formats on its own (writer) thread
             @Override
-            public synchronized String format(LogRecord lr) {
-                return String.format(format, new Date(lr.getMillis()),
+            public String format(LogRecord lr) {
+                return String.format(format, lr.getMillis(),
                         lr.getLevel().getLocalizedName(), lr.getMessage()
                 );
             }
@@ -80,6 +80,13 @@ public interface UserInterface {
      */
     void announceWinner(int[] players);
 
+    /**
+     * Hide the winner announcement and show the score panel and the timer again, for the next game.
+     * The scores are set by the players (setScore).
+     */
+    default void newGame() {
+    }
+
     /**
      * Programmatically closes the window.
      */
@@ -0,0 +1,276 @@
+package bguspl.set;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.logging.Logger;
+
+/**
+ * A UserInterface that moves all the rendering off the game threads.
+ * Each call only records the latest state it sets (the card and tokens of a slot, the countdown, a player's freeze
+ * or score) and queues its key as dirty. At a fixed frame rate the Swing event thread applies the latest state of
+ * every dirty key to the wrapped user interface, so a burst of calls on the same key (e.g. countdown ticks) is
+ * coalesced into one update. Every key is queued at most once until it is applied, so the queue is bounded by the
+ * number of keys. Game threads never wait for rendering, even when they call the ui while holding a game lock.
+ * The UiCall flight recorder events time the updates applied on the event thread, not the calls of the game threads.
+ * The tokens of a slot are a bitmask of the players, in one long up to 64 players and in as many as needed above.
+ */
+public class UserInterfaceAsync implements UserInterface {
+
+    private static final int EMPTY = -1;
+
+    private final Logger logger;
+    private final Config config;
+    private final UserInterface ui;
+    private final Timer frameTimer;
+
+    /**
+     * The latest requested state (written by the game threads).
+     */
+    private final AtomicIntegerArray cards; // card per slot, EMPTY if none
+    private final AtomicLongArray tokens; // bitmask of the players with a token, words per slot
+    private final int words; // longs per slot
+    private final AtomicLongArray freezes; // freeze millies per player
+    private final AtomicIntegerArray scores; // score per player
+    private final AtomicLong countdown = new AtomicLong(); // millies * 2 + (warn ? 1 : 0)
+    private final AtomicLong elapsed = new AtomicLong();
+
+    /**
+     * The state already applied to the wrapped ui (used only by the Swing event thread).
+     */
+    private final int[] shownCards;
+    private final long[] shownTokens;
+
+    /**
+     * Dirty keys: slots are 0..tableSize-1, then freeze and score per player, then countdown and elapsed.
+     */
+    private final AtomicIntegerArray dirty;
+    private final ConcurrentLinkedQueue<Integer> dirtyKeys = new ConcurrentLinkedQueue<>();
+    private final int freezeKey;
+    private final int scoreKey;
+    private final int countdownKey;
+    private final int elapsedKey;
+
+    /**
+     * Statistics: ui calls received and updates actually applied.
+     */
+    private final AtomicLong calls = new AtomicLong();
+    private long updates;
+
+    public UserInterfaceAsync(Logger logger, Config config, UserInterface ui) {
+        this.logger = logger;
+        this.config = config;
+        this.ui = ui;
+
+        cards = new AtomicIntegerArray(config.tableSize);
+        shownCards = new int[config.tableSize];
+        for (int slot = 0; slot < config.tableSize; slot++) {
+            cards.set(slot, EMPTY);
+            shownCards[slot] = EMPTY;
+        }
+        words = (config.players + Long.SIZE - 1) / Long.SIZE;
+        tokens = new AtomicLongArray(config.tableSize * words);
+        shownTokens = new long[config.tableSize * words];
+        freezes = new AtomicLongArray(config.players);
+        scores = new AtomicIntegerArray(config.players);
+
+        freezeKey = config.tableSize;
+        scoreKey = freezeKey + config.players;
+        countdownKey = scoreKey + config.players;
+        elapsedKey = countdownKey + 1;
+        dirty = new AtomicIntegerArray(elapsedKey + 1);
+
+        frameTimer = new Timer(Math.max(1, 1000 / Math.max(1, config.uiFramesPerSecond)), e -> applyPending());
+        frameTimer.start();
+    }
+
+    private void markDirty(int key) {
+        calls.incrementAndGet();
+        if (dirty.compareAndSet(key, 0, 1)) // already queued keys are coalesced
+            dirtyKeys.offer(key);
+    }
+
+    /**
+     * Applies the latest state of all dirty keys to the wrapped ui. Runs on the Swing event thread.
+     */
+    private void applyPending() {
+        Integer key;
+        while ((key = dirtyKeys.poll()) != null) {
+            dirty.set(key, 0); // cleared before reading, so a later change queues the key again
+            apply(key);
+            updates++;
+        }
+    }
+
+    private void apply(int key) {
+        if (key < freezeKey) {
+            applySlot(key);
+            return;
+        }
+        GameEvents.UiCall event = beginUiCall();
+        if (key < scoreKey) {
+            int player = key - freezeKey;
+            ui.setFreeze(player, freezes.get(player));
+            commitUiCall(event, "setFreeze", player, -1);
+        } else if (key < countdownKey) {
+            int player = key - scoreKey;
+            ui.setScore(player, scores.get(player));
+            commitUiCall(event, "setScore", player, -1);
+        } else if (key == countdownKey) {
+            long value = countdown.get();
+            ui.setCountdown(Math.floorDiv(value, 2), Math.floorMod(value, 2) == 1);
+            commitUiCall(event, "setCountdown", -1, -1);
+        } else {
+            ui.setElapsed(elapsed.get());
+            commitUiCall(event, "setElapsed", -1, -1);
+        }
+    }
+
+    private void applySlot(int slot) {
+        int card = cards.get(slot);
+        if (card != shownCards[slot]) {
+            GameEvents.UiCall event = beginUiCall();
+            if (card == EMPTY) {
+                ui.removeCard(slot);
+                commitUiCall(event, "removeCard", -1, slot);
+            } else {
+                ui.placeCard(card, slot);
+                commitUiCall(event, "placeCard", -1, slot);
+            }
+            shownCards[slot] = card;
+        }
+        for (int word = 0, index = slot * words; word < words; word++, index++) {
+            long mask = tokens.get(index);
+            long changed = mask ^ shownTokens[index];
+            while (changed != 0) {
+                int bit = Long.numberOfTrailingZeros(changed);
+                int player = word * Long.SIZE + bit;
+                GameEvents.UiCall event = beginUiCall();
+                if ((mask & (1L << bit)) != 0) {
+                    ui.placeToken(player, slot);
+                    commitUiCall(event, "placeToken", player, slot);
+                } else {
+                    ui.removeToken(player, slot);
+                    commitUiCall(event, "removeToken", player, slot);
+                }
+                changed &= changed - 1;
+            }
+            shownTokens[index] = mask;
+        }
+    }
+
+    private void updateToken(int player, int slot, boolean on) {
+        int index = slot * words + player / Long.SIZE;
+        long bit = 1L << player;
+        long mask;
+        do {
+            mask = tokens.get(index);
+        } while (!tokens.compareAndSet(index, mask, on ? mask | bit : mask & ~bit));
+        markDirty(slot);
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        cards.set(slot, card);
+        markDirty(slot);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        cards.set(slot, EMPTY);
+        markDirty(slot);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        updateToken(player, slot, true);
+    }
+
+    @Override
+    public void removeTokens() {
+        for (int slot = 0; slot < config.tableSize; slot++)
+            removeTokens(slot);
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        for (int index = slot * words; index < (slot + 1) * words; index++)
+            tokens.set(index, 0);
+        markDirty(slot);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        updateToken(player, slot, false);
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        countdown.set(millies * 2 + (warn ? 1 : 0));
+        markDirty(countdownKey);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        elapsed.set(millies);
+        markDirty(elapsedKey);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        freezes.set(player, millies);
+        markDirty(freezeKey + player);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        scores.set(player, score);
+        markDirty(scoreKey + player);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        EventQueue.invokeLater(() -> {
+            applyPending(); // so the final scores are shown before the announcement
+            GameEvents.UiCall event = beginUiCall();
+            ui.announceWinner(players);
+            commitUiCall(event, "announceWinner", -1, -1);
+        });
+    }
+
+    @Override
+    public void newGame() {
+        EventQueue.invokeLater(() -> { // after the announcement of the previous game
+            GameEvents.UiCall event = beginUiCall();
+            ui.newGame();
+            commitUiCall(event, "newGame", -1, -1);
+        });
+    }
+
+    @Override
+    public void dispose() {
+        frameTimer.stop();
+        EventQueue.invokeLater(() -> {
+            applyPending();
+            logger.info("ui: " + calls.get() + " calls rendered as " + updates + " updates.");
+            ui.dispose();
+        });
+    }
+
+    private static GameEvents.UiCall beginUiCall() {
+        GameEvents.UiCall event = new GameEvents.UiCall();
+        event.begin();
+        return event;
+    }
+
+    private static void commitUiCall(GameEvents.UiCall event, String method, int player, int slot) {
+        if (!event.shouldCommit()) return;
+        event.method = method;
+        event.player = player;
+        event.slot = slot;
+        event.commit();
+    }
+}
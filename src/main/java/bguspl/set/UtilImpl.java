@@ -3,7 +3,6 @@ package bguspl.set;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.IntStream;
 
 /**
@@ -12,9 +11,30 @@ import java.util.stream.IntStream;
 public class UtilImpl implements Util {
 
     private final Config config;
+    private final GameRandom random; // the game's, only its spin streams are used here
 
-    public UtilImpl(Config config) {
+    /**
+     * @param config - the game configuration.
+     * @param random - the game's random streams (the same object the game's Env holds).
+     */
+    public UtilImpl(Config config, GameRandom random) {
         this.config = config;
+        this.random = random;
+    }
+
+    /**
+     * A util with random streams of its own, derived from the configuration's seed (the Env it is given to takes them
+     * as the game's, see Env).
+     */
+    public UtilImpl(Config config) {
+        this(config, new GameRandom(config));
+    }
+
+    /**
+     * @return - the random streams the util draws from.
+     */
+    public GameRandom random() {
+        return random;
     }
 
     private void cardToFeatures(int card, int[] features) {
@@ -92,7 +112,7 @@ public class UtilImpl implements Util {
 
     public void spin() {
         if (config.randomSpinMax <= 0) return;
-        long cycles = ThreadLocalRandom.current().nextLong(config.randomSpinMin, config.randomSpinMax);
+        long cycles = random.spin().nextLong(config.randomSpinMin, config.randomSpinMax);
         for (int i = 0; i < cycles; ++i)
             Thread.yield();
     }
@@ -0,0 +1,16 @@
+package bguspl.set.ex;
+
+/**
+ * A strategy used by a computer player to decide which keys to press next.
+ */
+public interface ComputerStrategy {
+
+    /**
+     * Decides the next key presses of a computer player.
+     *
+     * @param table  - the table the player is playing on.
+     * @param player - the computer player.
+     * @return - the slots to press (in order), or an empty array if there is nothing worth pressing right now.
+     */
+    int[] nextPresses(Table table, Player player);
+}
@@ -1,11 +1,13 @@
 package bguspl.set.ex;
 import bguspl.set.Env;
+import bguspl.set.GameEvents;
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Queue;
-import java.util.Random;
 import java.util.Vector;
 import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
@@ -38,6 +40,12 @@ public class Dealer implements Runnable {
      */
     private final List<Integer> deck;
 
+    /**
+     * Whether the deck has a set, or null if the deck changed since it was last checked (dealer thread only).
+     * Saves a search of the whole deck every time the dealer wakes up.
+     */
+    private Boolean deckHasSet;
+
     /**
      * True iff game should be terminated due to an external event.
      */
@@ -48,6 +56,28 @@ public class Dealer implements Runnable {
      */
     private long reshuffleTime = Long.MAX_VALUE;
 
+    /**
+     * Keeps a snapshot of the game on disk (when CheckpointFile is set), taken every config.checkpointMillis.
+     */
+    private GameCheckpoint checkpoint;
+    private long nextCheckpoint;
+
+    /**
+     * The game to resume instead of dealing a new one (null for a new game), and the time it had left until the
+     * reshuffle (-1 when used up).
+     */
+    private GameCheckpoint.State resumed;
+    private long resumedReshuffleMillis = -1;
+
+    /**
+     * When the game started and the players' totals of the game metrics by then (for the match history, the metrics
+     * count all the games played on the table).
+     */
+    private long startEpochMillis;
+    private MatchHistory history; // open for the dealer's lifetime (null if HistoryDirectory is not set)
+    private long[] penaltiesAtStart;
+    private long[] freezeMillisAtStart;
+
     public Dealer(Env env, Table table, Player[] players) {
         this.env = env;
         this.table = table;
@@ -56,6 +86,21 @@ public class Dealer implements Runnable {
         sleepTime = 1000;
         timeOutMillis = env.config.turnTimeoutMillis;
         playersThreads = new Thread[players.length];
+        checkpoint = newCheckpoint();
+    }
+
+    private GameCheckpoint newCheckpoint() {
+        return new GameCheckpoint(env.config.checkpointFile.isEmpty() ? null
+                : Paths.get(env.config.checkpointFile), env.logger);
+    }
+
+    /**
+     * Resumes a game from its checkpoint instead of dealing a new one (call before the dealer thread starts).
+     *
+     * @param state - the game's state, it fits the configuration (see GameCheckpoint.State::mismatch).
+     */
+    public void resume(GameCheckpoint.State state) {
+        resumed = state;
     }
 
     /**
@@ -64,29 +109,151 @@ public class Dealer implements Runnable {
     @Override
     public void run() {
         env.logger.info("Thread " + Thread.currentThread().getName() + " starting.");
-        placeCardsOnTable();
+        env.logger.info("seed: " + env.random.seed());
+        if (env.config.warmupMillis > 0) // before the metrics are registered, the warm-up game has metrics of its own
+            env.logger.info(JitWarmup.run(env, env.config.warmupMillis).toString());
+        table.metrics.register(env.logger);
+        openHistory();
+        startGameClock();
+        profileLocks();
+        if (resumed != null)
+            restore();
+        else
+            placeCardsOnTable();
         for (int i = 0; i < players.length; i++) {
             playersThreads[i] = new Thread(players[i], env.config.playerNames[i]);
             playersThreads[i].start();
         }
-        while (!shouldFinish()) {
-            timerLoop();
-            updateTimerDisplay(true); // set back to 60 sec
-            removeAllCardsFromTable(true);
+        boolean completed;
+        boolean announced = false; // the last game was already announced and recorded (stopped between games)
+        for (int game = 1; ; game++) {
+            while (!shouldFinish()) {
+                timerLoop();
+                if (terminate)
+                    break; // stopped from outside: the table stays as it is for the checkpoint
+                updateTimerDisplay(true); // set back to 60 sec
+                removeAllCardsFromTable(true);
+            }
+            completed = !terminate;
+            if (terminate) { // stopped from outside, keep the game for a resume
+                checkpoint.save(capture());
+                checkpoint.close();
+                break;
+            }
+            checkpoint.delete(); // the game is over, there is nothing to resume
+            if (env.config.games > 0 && game >= env.config.games)
+                break;
+            announceWinners();
+            recordMatch(true);
+            if (!awaitRematch()) {
+                announced = true;
+                break;
+            }
+            newGame(game + 1);
         }
         System.out.println("The dealer decide the game should be finished");
         terminate();
-        System.out.println(Thread.currentThread().getName() + " lets announce the winners");
-        announceWinners();
+        if (!announced) {
+            System.out.println(Thread.currentThread().getName() + " lets announce the winners");
+            announceWinners();
+            recordMatch(completed);
+        }
+        env.logger.info("solver cache: " + table.solverCache.misses() + " boards solved, "
+                + table.solverCache.hits() + " reused.");
+        env.logger.info(String.format("table gate: closed %d times, %.1f ms in total, %.1f ms at most.",
+                table.gate.closures(), table.gate.totalClosedMillis(), table.gate.maxClosedMillis()));
+        env.logger.info(table.metrics.summary());
+        table.metrics.unregister(env.logger);
+        table.lockProfiler.stop();
+        table.lockProfiler.report().forEach(env.logger::info);
+        table.journal.close();
+        closeHistory();
         env.logger.info("Thread " + Thread.currentThread().getName() + " terminated.");
     }
 
+    /**
+     * Starts the clock of a game and takes the metrics it starts from (for the match history).
+     */
+    private void startGameClock() {
+        startEpochMillis = System.currentTimeMillis();
+        penaltiesAtStart = table.metrics.getPenalties();
+        freezeMillisAtStart = table.metrics.getFreezeMillis();
+    }
+
+    /**
+     * Shows the winners for config.rematchPauseMillis, answering the claims sent as the game ended meanwhile (their
+     * tokens went with the cards, so they are not checked), so no player waits into the next game.
+     *
+     * @return - false iff the game was terminated meanwhile.
+     */
+    private boolean awaitRematch() {
+        long end = System.currentTimeMillis() + env.config.rematchPauseMillis;
+        synchronized (lock) {
+            while (true) {
+                while (!setsToCheck.isEmpty())
+                    checkSet();
+                long left = end - System.currentTimeMillis();
+                if (terminate || left <= 0)
+                    break;
+                try {
+                    lock.wait(Math.min(left, 1000)); // terminate does not notify, look at it at least every second
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }
+        return !terminate;
+    }
+
+    /**
+     * Starts another game with the same table, players (and their threads) and user interface: the deck is filled
+     * back in place, the scores are set back to 0 and the first cards are dealt.
+     *
+     * @param game - the number of the game (the first one is 1).
+     */
+    private void newGame(int game) {
+        long start = System.nanoTime();
+        deck.clear();
+        for (int card = 0; card < env.config.deckSize; card++)
+            deck.add(card);
+        deckHasSet = null;
+        for (Player p : players)
+            p.reset(); // waits for a freeze the previous game left running
+        table.journal.newGame(game); // before the deal, so a replay starts the scores again there
+        checkpoint = newCheckpoint();
+        nextCheckpoint = 0;
+        env.ui.newGame();
+        startGameClock();
+        placeCardsOnTable();
+        env.logger.info(String.format("game %d dealt in %.1f ms.", game, (System.nanoTime() - start) / 1e6));
+    }
+
+    /**
+     * Names the monitors of the dealer and the players for the lock report and starts sampling them.
+     * Called before the player threads start, so they only ever see the profiled semaphore.
+     */
+    private void profileLocks() {
+        LockProfiler profiler = table.lockProfiler;
+        if (!profiler.enabled())
+            return;
+        semaphoreLock = profiler.semaphore("Dealer.semaphoreLock", 1, true);
+        profiler.nameMonitor("Dealer.lock", lock);
+        profiler.profileThread(Thread.currentThread());
+        for (Player p : players) {
+            String name = env.config.playerNames[p.id];
+            profiler.nameMonitor(name, p);
+            profiler.nameMonitor(name + ".myQueue", p.myQueue);
+            profiler.nameMonitor(name + ".myTokens", p.myTokens);
+        }
+        profiler.start();
+    }
+
     /**
      * The inner loop of the dealer thread that runs as long as the countdown did
      * not time out.
      */
     private void timerLoop() {
-        reshuffleTime = System.currentTimeMillis() + timeOutMillis;
+        reshuffleTime = System.currentTimeMillis() + (resumedReshuffleMillis >= 0 ? resumedReshuffleMillis : timeOutMillis);
+        resumedReshuffleMillis = -1;
         while (!terminate && System.currentTimeMillis() < reshuffleTime && !shouldFinish()) {
             updateTimerDisplay(false); // set to a sec less
             synchronized (lock) {
@@ -95,10 +262,80 @@ public class Dealer implements Runnable {
                     checkSet();
                 }
             }
+            checkpointIfDue();
             sleepUntilWokenOrTimeout();
         }
     }
 
+    /**
+     * Hands a snapshot of the game to the checkpoint writer if it is time for one. Only copies the state (the file
+     * is written by the checkpoint's own thread), so the claims waiting for the dealer are not held up.
+     */
+    private void checkpointIfDue() {
+        if (!checkpoint.enabled() || System.currentTimeMillis() < nextCheckpoint)
+            return;
+        nextCheckpoint = System.currentTimeMillis() + env.config.checkpointMillis;
+        checkpoint.save(capture());
+    }
+
+    /**
+     * Copies the state of the game. Only the dealer thread moves cards, so the board and the tokens (which are only
+     * ever on cards) fit each other.
+     */
+    private GameCheckpoint.State capture() {
+        long now = System.currentTimeMillis();
+        GameCheckpoint.State state = new GameCheckpoint.State();
+        state.seed = env.random.seed();
+        state.savedEpochMillis = now;
+        state.featureSize = env.config.featureSize;
+        state.featureCount = env.config.featureCount;
+        state.tableSize = env.config.tableSize;
+        state.deck = deck.stream().mapToInt(Integer::intValue).toArray();
+        state.slotToCard = table.slotsSnapshot();
+        state.scores = new int[players.length];
+        state.tokens = new int[players.length][];
+        state.freezeMillis = new long[players.length];
+        state.freezePenalty = new boolean[players.length];
+        for (Player p : players) {
+            state.scores[p.id] = p.score;
+            synchronized (p.myTokens) {
+                state.tokens[p.id] = p.myTokens.stream().mapToInt(Integer::intValue).toArray();
+            }
+            long frozenUntil = p.frozenUntil;
+            state.freezeMillis[p.id] = frozenUntil == 0 ? 0 : Math.max(0, frozenUntil - now);
+            state.freezePenalty[p.id] = p.frozenPenalty;
+        }
+        state.reshuffleMillis = reshuffleTime == Long.MAX_VALUE ? timeOutMillis : Math.max(0, reshuffleTime - now);
+        return state;
+    }
+
+    /**
+     * Puts the resumed game on the table: the deck, the board, the scores, the tokens and the freezes (before the
+     * player threads start).
+     */
+    private void restore() {
+        GameCheckpoint.State state = resumed;
+        deck.clear();
+        for (int card : state.deck)
+            deck.add(card);
+        deckHasSet = null;
+        table.placeCards(state.slotToCard);
+        table.gate.open();
+        for (Player p : players) {
+            int[] tokens = state.tokens[p.id];
+            for (int slot : tokens)
+                table.placeToken(p, slot);
+            // a claim in flight is not in the checkpoint: a full set of tokens that is a legal set is claimed again
+            // (a wrong one was judged already, or is left for the player to take back, like after a penalty)
+            boolean claim = tokens.length == env.config.featureSize
+                    && env.util.testSet(slotsToCards(Arrays.stream(tokens).boxed().toArray(Integer[]::new)));
+            p.restore(state.scores[p.id], state.freezeMillis[p.id], state.freezePenalty[p.id], claim);
+        }
+        resumedReshuffleMillis = state.reshuffleMillis;
+        env.logger.info(String.format("resumed the game saved %.1f s ago (seed %d, %d cards in the deck).",
+                (System.currentTimeMillis() - state.savedEpochMillis) / 1000.0, state.seed, state.deck.length));
+    }
+
     /**
      * Called when the game should be terminated due to an external event.
      * *******************Bounus**********************************
@@ -124,7 +361,11 @@ public class Dealer implements Runnable {
      * @return true iff the game should be finished.
      */
     private boolean shouldFinish() {
-        return terminate || env.util.findSets(deck, 1).size() == 0;
+        if (terminate)
+            return true;
+        if (deckHasSet == null)
+            deckHasSet = env.util.findSets(deck, 1).size() > 0;
+        return !deckHasSet;
     }
 
     /**
@@ -134,7 +375,7 @@ public class Dealer implements Runnable {
      */
     private void removeCardsFromTable(Integer[] slots) {
         if (!shouldFinish()) {// for ending the game without waiting the TurnTimeOutSeconds
-            table.canChangeTable = false; // couse a major delay, why?
+            table.gate.close();
             for (int slot : slots) {
                 table.removeCard(slot, players);
             }
@@ -150,21 +391,18 @@ public class Dealer implements Runnable {
     private void placeCardsOnTable() {
         if (!shouldFinish()) { // for ending the game without waiting the TurnTimeOutSeconds
             while (!deck.isEmpty() && table.emptySlots.size() != 0) {
-                Random rnd = new Random();
-                int x = rnd.nextInt(table.emptySlots.size());
+                int x = env.random.slots().nextInt(table.emptySlots.size());
                 int slot = table.emptySlots.get(x);
-                x = rnd.nextInt(deck.size());
+                x = env.random.deck().nextInt(deck.size());
                 int card = deck.get(x);
                 deck.remove(x);
+                deckHasSet = null;
                 table.placeCard(card, slot);
             }
         }
         if (env.config.hints)
             table.hints();
-        table.canChangeTable = true;
-        synchronized (table.canChangeLock) {
-            table.canChangeLock.notify();
-        }
+        table.gate.open(); // releases all the AI threads at once
 
     }
 
@@ -174,11 +412,14 @@ public class Dealer implements Runnable {
      */
     private void sleepUntilWokenOrTimeout() {
         synchronized (lock) {// synchronized so the player could notify the dealer he has a set
-            try {
-                lock.wait(getSleepTime());
-            } catch (InterruptedException ex) {
+            if (setsToCheck.isEmpty()) { // a set declared since the last check already sent its notify
+                try {
+                    lock.wait(getSleepTime());
+                } catch (InterruptedException ex) {
+                }
+                table.metrics.dealerWokeUp(!setsToCheck.isEmpty());
             }
-            
+
             while (!setsToCheck.isEmpty()) { // if the player declare on a set when the diler is waiting
                 checkSet();
             }
@@ -187,22 +428,38 @@ public class Dealer implements Runnable {
 
     private void checkSet() {
         Player p = setsToCheck.poll();
+        table.metrics.claimDequeued();
+        long queueWait = System.nanoTime() - p.claimNanos;
+        GameEvents.ClaimVerified event = new GameEvents.ClaimVerified();
+        event.begin();
         synchronized (p) { // so the player will wait untill we finish checking the set, and the dealer
                            // will notify him
-            if (p.myTokens.size() == env.config.featureSize) { // check if no token was deleted while checking other
-                                                               // players sets
-                Integer[] slots = vectorToArray(p.myTokens);
+            Integer[] slots = vectorToArray(p.myTokens);
+            if (slots.length == env.config.featureSize) { // check if no token was deleted while checking other
+                                                          // players sets
                 int[] cards = slotsToCards(slots);
-                if (env.util.testSet(cards)) {
-                    removeCardsFromTable(slots);
-                    updateTimerDisplay(true);
-                    p.flag = 1;
-                } else {
-                    p.flag = 0;
-                }
+                p.flag = env.util.testSet(cards) ? 1 : 0;
             } else {
                 p.flag = 2;
             }
+            table.journal.verdict(p.id, p.flag); // before the set leaves the table, so a replay can check it
+            event.end(); // the check itself, the removal is timed on its own
+            long removal = 0;
+            if (p.flag == 1) {
+                long start = System.nanoTime();
+                removeCardsFromTable(slots);
+                updateTimerDisplay(true);
+                removal = System.nanoTime() - start;
+            }
+            if (event.shouldCommit()) {
+                event.player = p.id;
+                event.slots = GameEvents.slots(Arrays.asList(slots));
+                event.result = p.flag;
+                event.queueWait = queueWait;
+                event.removal = removal;
+                event.commit();
+            }
+            table.metrics.claimVerified(p.flag, System.nanoTime() - p.claimNanos);
             p.notify();
         }
 
@@ -215,14 +472,25 @@ public class Dealer implements Runnable {
     }
 
     public void IHaveASet(Player p) {
+        GameEvents.ClaimSubmitted event = new GameEvents.ClaimSubmitted();
+        if (event.shouldCommit()) {
+            event.player = p.id;
+            event.slots = GameEvents.slots(Arrays.asList(vectorToArray(p.myTokens)));
+            event.commit();
+        }
+        p.claimNanos = System.nanoTime();
         try {
             semaphoreLock.acquire();
             synchronized (lock) { // semaphore to maintaining the order of sets call
                 setsToCheck.add(p);
+                if (table.journal.enabled()) // once queued, so every claim journaled gets its verdict
+                    table.journal.claim(p.id, vectorToArray(p.myTokens));
+                table.metrics.claimQueued();
                 lock.notify();
             }
             semaphoreLock.release();
-        } catch (Exception ignore) {
+        } catch (InterruptedException e) { // terminated: the set was not sent, so the player must not wait for it
+            Thread.currentThread().interrupt();
         }
 
     }
@@ -259,20 +527,77 @@ public class Dealer implements Runnable {
     private void removeAllCardsFromTable(boolean shouldIPlaceCard) {
         // after the AI will put 3 slots in the queue of each player, it will wait so
         // wont waste CPU time
-        table.canChangeTable = false; // stoping the AI threads and the option to place tokens
+        GameEvents.Reshuffle event = new GameEvents.Reshuffle();
+        event.begin();
+        long start = System.nanoTime();
+        table.gate.close(); // stoping the AI threads and the option to place tokens
+        table.journal.reshuffle();
+        int returned = 0;
         for (int i = 0; i < 12; i++) {
             if (table.slotToCard(i) != null) {
                 deck.add(table.slotToCard(i));
+                deckHasSet = null;
                 table.removeCard(i, players);
+                returned++;
             }
         }
         for (Player p : players) {
-            synchronized (p.myQueue) { // becouse we are changing the queue
-                p.myQueue.clear(); // deleting the slots the AI entered to the queue
-            }
+            p.clearPresses(); // deleting the slots the AI (or the keyboard) entered to the queue
         }
         if (shouldIPlaceCard) {
             placeCardsOnTable();
+            table.metrics.reshuffled(System.nanoTime() - start);
+            if (event.shouldCommit()) {
+                event.cards = returned;
+                event.commit();
+            }
+        }
+    }
+
+    /**
+     * Opens the match history once, for all the games of the dealer, so recording a game only appends to it.
+     */
+    private void openHistory() {
+        if (env.config.historyDirectory.isEmpty())
+            return;
+        try {
+            history = MatchHistory.open(Paths.get(env.config.historyDirectory));
+        } catch (IOException | RuntimeException e) {
+            env.logger.severe("cannot open the match history " + env.config.historyDirectory + ": " + e);
+        }
+    }
+
+    private void closeHistory() {
+        if (history == null)
+            return;
+        try {
+            history.close();
+        } catch (IOException e) {
+            env.logger.warning("cannot close the match history: " + e);
+        }
+    }
+
+    /**
+     * Appends the game's results to the match history (when HistoryDirectory is set).
+     *
+     * @param completed - false if the game was stopped before its end.
+     */
+    private void recordMatch(boolean completed) {
+        if (history == null)
+            return;
+        long[] penalties = table.metrics.getPenalties();
+        long[] frozenMillis = table.metrics.getFreezeMillis();
+        MatchHistory.PlayerResult[] results = new MatchHistory.PlayerResult[players.length];
+        for (Player p : players)
+            results[p.id] = new MatchHistory.PlayerResult(env.config.playerNames[p.id], p.score,
+                    (int) (penalties[p.id] - penaltiesAtStart[p.id]), frozenMillis[p.id] - freezeMillisAtStart[p.id]);
+        MatchHistory.Match match = new MatchHistory.Match(startEpochMillis,
+                System.currentTimeMillis() - startEpochMillis, env.random.seed(), completed, results);
+        try {
+            history.append(match);
+            env.logger.info("match history: game " + history.size() + " recorded.");
+        } catch (IOException | RuntimeException e) {
+            env.logger.severe("cannot record the game in " + env.config.historyDirectory + ": " + e);
         }
     }
 
@@ -0,0 +1,246 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.logging.Logger;
+
+/**
+ * Keeps a snapshot of the game on disk (CheckpointFile=...), so a game that died with its JVM can be resumed
+ * (Main --resume).
+ * <p>
+ * The dealer captures the state (a copy of a few small arrays) and hands it over with save(), which returns at once:
+ * a writer thread of its own writes the latest state handed over to a temporary file next to the checkpoint, syncs
+ * it and renames it over the checkpoint, so the file on disk is always a whole snapshot (the previous one or the new
+ * one). States handed over while one is being written replace each other, only the latest is written.
+ */
+public class GameCheckpoint {
+
+    static final int MAGIC = 0x53455443; // "SETC"
+    static final short VERSION = 1;
+
+    /**
+     * The state of a game, as the dealer captured it.
+     */
+    public static class State {
+        public long seed;
+        public long savedEpochMillis;
+        public int featureSize, featureCount, tableSize;
+        public int[] deck;
+        public Integer[] slotToCard;
+        public int[] scores;
+        public int[][] tokens; // per player, the slots of its tokens
+        public long[] freezeMillis; // per player, how much of its freeze is left (0 if not frozen)
+        public boolean[] freezePenalty;
+        public long reshuffleMillis; // how long until the dealer reshuffles
+
+        /**
+         * @return - null if the state fits the configuration, otherwise why it does not.
+         */
+        public String mismatch(Config config) {
+            if (featureSize != config.featureSize || featureCount != config.featureCount)
+                return "the deck is " + featureSize + "^" + featureCount + ", the configuration's is "
+                        + config.featureSize + "^" + config.featureCount;
+            if (tableSize != config.tableSize)
+                return "the table has " + tableSize + " slots, the configuration's has " + config.tableSize;
+            if (scores.length != config.players)
+                return "the game had " + scores.length + " players, the configuration has " + config.players;
+            return null;
+        }
+    }
+
+    private final Path file;
+    private final Logger logger;
+    private State pending; // the latest state handed over and not written yet (guarded by this)
+    private boolean closed;
+    private Thread writer;
+    private int written;
+
+    /**
+     * @param file   - the checkpoint file, or null for a checkpoint that saves nothing.
+     * @param logger - for reporting write failures.
+     */
+    public GameCheckpoint(Path file, Logger logger) {
+        this.file = file;
+        this.logger = logger;
+    }
+
+    public boolean enabled() {
+        return file != null;
+    }
+
+    /**
+     * Hands a state over to be written (by the writer thread), returns at once.
+     */
+    public synchronized void save(State state) {
+        if (file == null || closed)
+            return;
+        pending = state;
+        if (writer == null) {
+            writer = new Thread(this::writeLoop, "checkpoint-writer");
+            writer.setDaemon(true);
+            writer.start();
+        }
+        notifyAll();
+    }
+
+    private void writeLoop() {
+        while (true) {
+            State state;
+            synchronized (this) {
+                while (pending == null && !closed) {
+                    try {
+                        wait();
+                    } catch (InterruptedException ignored) {
+                    }
+                }
+                if (pending == null)
+                    return;
+                state = pending;
+                pending = null;
+            }
+            try {
+                write(file, state);
+                synchronized (this) {
+                    written++;
+                }
+            } catch (IOException e) {
+                logger.severe("cannot write the checkpoint " + file + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Writes the state handed over last (if any) and stops the writer thread.
+     */
+    public void close() {
+        Thread thread;
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+            thread = writer;
+        }
+        if (thread == null)
+            return;
+        try {
+            thread.join();
+        } catch (InterruptedException ignored) {
+        }
+    }
+
+    /**
+     * Deletes the checkpoint (the game is over, there is nothing to resume).
+     */
+    public void delete() {
+        close();
+        if (file == null)
+            return;
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            logger.warning("cannot delete the checkpoint " + file + ": " + e);
+        }
+    }
+
+    /**
+     * @return - the number of states written so far.
+     */
+    public synchronized int written() {
+        return written;
+    }
+
+    /**
+     * Writes a state to a temporary file and renames it over the checkpoint.
+     */
+    static void write(Path file, State state) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+        try {
+            try (FileOutputStream stream = new FileOutputStream(temp.toFile());
+                 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+                out.writeInt(MAGIC);
+                out.writeShort(VERSION);
+                out.writeLong(state.seed);
+                out.writeLong(state.savedEpochMillis);
+                out.writeByte(state.featureSize);
+                out.writeByte(state.featureCount);
+                out.writeShort(state.tableSize);
+                out.writeShort(state.deck.length);
+                for (int card : state.deck)
+                    out.writeShort(card);
+                for (Integer card : state.slotToCard)
+                    out.writeShort(card == null ? -1 : card);
+                out.writeShort(state.scores.length);
+                for (int player = 0; player < state.scores.length; player++) {
+                    out.writeInt(state.scores[player]);
+                    out.writeByte(state.tokens[player].length);
+                    for (int slot : state.tokens[player])
+                        out.writeShort(slot);
+                    out.writeLong(state.freezeMillis[player]);
+                    out.writeBoolean(state.freezePenalty[player]);
+                }
+                out.writeLong(state.reshuffleMillis);
+                out.flush();
+                stream.getFD().sync(); // on the disk before it replaces the previous checkpoint
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Reads a checkpoint.
+     */
+    public static State read(Path file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC)
+                throw new IOException("not a game checkpoint");
+            short version = in.readShort();
+            if (version != VERSION)
+                throw new IOException("unsupported checkpoint version " + version);
+            State state = new State();
+            state.seed = in.readLong();
+            state.savedEpochMillis = in.readLong();
+            state.featureSize = in.readByte();
+            state.featureCount = in.readByte();
+            state.tableSize = in.readShort();
+            state.deck = new int[in.readShort()];
+            for (int i = 0; i < state.deck.length; i++)
+                state.deck[i] = in.readShort();
+            state.slotToCard = new Integer[state.tableSize];
+            for (int slot = 0; slot < state.tableSize; slot++) {
+                int card = in.readShort();
+                state.slotToCard[slot] = card < 0 ? null : card;
+            }
+            int players = in.readShort();
+            state.scores = new int[players];
+            state.tokens = new int[players][];
+            state.freezeMillis = new long[players];
+            state.freezePenalty = new boolean[players];
+            for (int player = 0; player < players; player++) {
+                state.scores[player] = in.readInt();
+                state.tokens[player] = new int[in.readByte()];
+                for (int i = 0; i < state.tokens[player].length; i++)
+                    state.tokens[player][i] = in.readShort();
+                state.freezeMillis[player] = in.readLong();
+                state.freezePenalty[player] = in.readBoolean();
+            }
+            state.reshuffleMillis = in.readLong();
+            return state;
+        }
+    }
+}
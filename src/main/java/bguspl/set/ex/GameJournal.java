@@ -0,0 +1,474 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * An append only binary journal of the game's events (JournalFile=...), for replaying a game (see GameReplay).
+ * <p>
+ * The file starts with a header (magic, version, seed, start time and the table's dimensions), followed by one
+ * record per event: the event type (a byte), the nanoseconds since the previous record and the event's fields, all
+ * numbers as unsigned varints, so most records take 3-5 bytes.
+ * <p>
+ * The game threads never wait for the journal: an event is put in a lock-free ring buffer (its place in the ring is
+ * taken with a compare-and-set, so the events are in the order they happened under the game's own locks), and a
+ * writer thread encodes the events into a buffer and writes it to the file when it fills up, and at least every
+ * FLUSH_MILLIS, so a crash loses only the last moments of the game. When the ring is full the event is dropped and
+ * counted (the writer reports it), like the log handler does. A disabled journal (no file) ignores every call.
+ */
+public class GameJournal {
+
+    static final int MAGIC = 0x5345544A; // "SETJ"
+    static final short VERSION = 2; // 2 added NEW_GAME, a version 1 journal (one game) is read as well
+
+    /**
+     * The event types.
+     */
+    public static final byte CARD_PLACED = 1, CARD_REMOVED = 2, TOKEN_PLACED = 3, TOKEN_REMOVED = 4, CLAIM = 5,
+            VERDICT = 6, FREEZE = 7, RESHUFFLE = 8, END = 9, NEW_GAME = 10;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int RING_SIZE = 1 << 16; // events
+    static final long FLUSH_MILLIS = 50;
+    private static final long WRITER_PARK_NANOS = 5_000_000L; // how often the writer looks for new events when idle
+
+    private final FileChannel channel;
+    private final Logger logger;
+
+    /**
+     * The ring: per event its type, nanoTime and fields (entry longs each), and the sequence it was published with
+     * (plus 1, 0 for none), which the writer reads before the rest of the entry.
+     */
+    private final int entry;
+    private final long[] events;
+    private final AtomicLongArray published;
+    private final AtomicLong tail = new AtomicLong(); // the next sequence to take (game threads)
+    private volatile long head; // the next sequence to write (writer thread only)
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final ByteBuffer buffer; // writer thread only (and the header, before it starts)
+    private final Thread writer;
+    private long lastNanos;
+    private volatile boolean closed;
+    private volatile boolean failed;
+
+    private GameJournal(FileChannel channel, int maxSlots, Logger logger) {
+        this.channel = channel;
+        this.logger = logger;
+        entry = 2 + Math.max(3, 2 + maxSlots);
+        events = channel == null ? null : new long[RING_SIZE * entry];
+        published = channel == null ? null : new AtomicLongArray(RING_SIZE);
+        buffer = channel == null ? null : ByteBuffer.allocateDirect(BUFFER_SIZE);
+        writer = channel == null ? null : new Thread(this::writeLoop, "journal-writer");
+    }
+
+    /**
+     * @return - a journal that records nothing.
+     */
+    public static GameJournal disabled() {
+        return new GameJournal(null, 0, null);
+    }
+
+    /**
+     * Creates (or truncates) a journal file, writes its header and starts its writer thread.
+     *
+     * @param file   - the journal file.
+     * @param config - the game configuration (the table's dimensions go into the header).
+     * @param seed   - the seed the game's randomness was derived from (0 if none).
+     * @param logger - for reporting write failures.
+     * @return - the journal, or a disabled one if the file could not be created.
+     */
+    public static GameJournal open(Path file, Config config, long seed, Logger logger) {
+        try {
+            FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            GameJournal journal = new GameJournal(channel, config.featureSize, logger);
+            journal.writeHeader(config, seed);
+            journal.writeOut(); // the file is a journal (of no events yet) from the start
+            if (journal.failed) {
+                channel.close();
+                throw new IOException("cannot write the header");
+            }
+            journal.writer.setDaemon(true);
+            journal.writer.start();
+            return journal;
+        } catch (IOException e) {
+            logger.severe("cannot write the journal " + file + ": " + e);
+            return disabled();
+        }
+    }
+
+    public boolean enabled() {
+        return channel != null;
+    }
+
+    private void writeHeader(Config config, long seed) {
+        buffer.putInt(MAGIC).putShort(VERSION).putLong(seed).putLong(System.currentTimeMillis());
+        buffer.put((byte) config.featureSize).put((byte) config.featureCount);
+        buffer.put((byte) config.rows).put((byte) config.columns).putShort((short) config.players);
+        lastNanos = System.nanoTime();
+    }
+
+    public void cardPlaced(int slot, int card) {
+        record(CARD_PLACED, slot, card);
+    }
+
+    public void cardRemoved(int slot, int card) {
+        record(CARD_REMOVED, slot, card);
+    }
+
+    public void tokenPlaced(int player, int slot) {
+        record(TOKEN_PLACED, player, slot);
+    }
+
+    public void tokenRemoved(int player, int slot) {
+        record(TOKEN_REMOVED, player, slot);
+    }
+
+    /**
+     * A player asked the dealer to check its set.
+     */
+    public void claim(int player, Integer[] slots) {
+        if (channel == null)
+            return;
+        long sequence = take();
+        if (sequence < 0)
+            return;
+        int base = base(sequence, CLAIM);
+        int count = Math.min(slots.length, entry - 4);
+        events[base + 2] = player;
+        events[base + 3] = count;
+        for (int i = 0; i < count; i++)
+            events[base + 4 + i] = slots[i];
+        publish(sequence);
+    }
+
+    /**
+     * @param verdict - 0 - wrong set, 1 - legal set, 2 - a token was removed before the check.
+     */
+    public void verdict(int player, int verdict) {
+        record(VERDICT, player, verdict);
+    }
+
+    public void freeze(int player, long millis, boolean penalty) {
+        record(FREEZE, player, millis, penalty ? 1 : 0);
+    }
+
+    /**
+     * The dealer is returning all the cards on the table to the deck (their removals follow).
+     */
+    public void reshuffle() {
+        if (channel == null)
+            return;
+        long sequence = take();
+        if (sequence < 0)
+            return;
+        base(sequence, RESHUFFLE);
+        publish(sequence);
+    }
+
+    /**
+     * The dealer starts the next game of a match (Games=...): the scores start again from 0 and the new deal follows.
+     *
+     * @param game - the game's number (the first game, which the journal starts with, is 1).
+     */
+    public void newGame(int game) {
+        if (channel == null)
+            return;
+        long sequence = take();
+        if (sequence < 0)
+            return;
+        events[base(sequence, NEW_GAME) + 2] = game;
+        publish(sequence);
+    }
+
+    // fixed arities, so a disabled journal costs the hot paths no varargs array
+    private void record(byte type, long first, long second) {
+        if (channel == null)
+            return;
+        long sequence = take();
+        if (sequence < 0)
+            return;
+        int base = base(sequence, type);
+        events[base + 2] = first;
+        events[base + 3] = second;
+        publish(sequence);
+    }
+
+    private void record(byte type, long first, long second, long third) {
+        if (channel == null)
+            return;
+        long sequence = take();
+        if (sequence < 0)
+            return;
+        int base = base(sequence, type);
+        events[base + 2] = first;
+        events[base + 3] = second;
+        events[base + 4] = third;
+        publish(sequence);
+    }
+
+    /**
+     * Takes the next place in the ring, without waiting.
+     *
+     * @return - its sequence, or -1 if the ring is full (the event is dropped) or the journal stopped.
+     */
+    private long take() {
+        if (failed || closed)
+            return -1;
+        long sequence;
+        do {
+            sequence = tail.get();
+            if (sequence - head >= RING_SIZE) { // full, do not wait for the writer
+                dropped.incrementAndGet();
+                return -1;
+            }
+        } while (!tail.compareAndSet(sequence, sequence + 1));
+        return sequence;
+    }
+
+    private int base(long sequence, byte type) {
+        int base = (int) (sequence & (RING_SIZE - 1)) * entry;
+        events[base] = type;
+        events[base + 1] = System.nanoTime();
+        return base;
+    }
+
+    private void publish(long sequence) {
+        published.set((int) (sequence & (RING_SIZE - 1)), sequence + 1); // after the entry, so the writer sees it all
+    }
+
+    private void writeLoop() {
+        long reportedDrops = 0;
+        long lastWrite = System.nanoTime();
+        while (!closed || head != tail.get()) {
+            int encoded = encode();
+            long drops = dropped.get();
+            if (drops != reportedDrops) {
+                logger.severe("the journal dropped " + (drops - reportedDrops) + " events (its buffer was full), "
+                        + "a replay of it will diverge");
+                reportedDrops = drops;
+            }
+            if (buffer.position() > 0 && System.nanoTime() - lastWrite >= FLUSH_MILLIS * 1_000_000L) {
+                writeOut();
+                lastWrite = System.nanoTime();
+            }
+            if (encoded == 0) {
+                if (!closed)
+                    LockSupport.parkNanos(this, WRITER_PARK_NANOS);
+                else
+                    Thread.yield(); // an event was taken but is not published yet
+            }
+        }
+        putRecord(END, System.nanoTime());
+        writeOut();
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.severe("cannot close the journal: " + e);
+        }
+    }
+
+    /**
+     * Encodes the published events into the buffer, in order, writing the buffer out whenever it fills up.
+     *
+     * @return - the number of events encoded.
+     */
+    private int encode() {
+        int encoded = 0;
+        while (true) {
+            int index = (int) (head & (RING_SIZE - 1));
+            if (published.get(index) != head + 1) // nothing more, or the next event is not published yet
+                return encoded;
+            if (buffer.remaining() < (entry + 1) * 10)
+                writeOut();
+            int base = index * entry;
+            byte type = (byte) events[base];
+            putRecord(type, events[base + 1]);
+            int fields = type == CLAIM ? 2 + (int) events[base + 3] : fieldCount(type);
+            for (int i = 0; i < fields; i++)
+                putVarLong(events[base + 2 + i]);
+            head++; // only this thread writes head, the place is free for the game threads from here on
+            encoded++;
+        }
+    }
+
+    private void putRecord(byte type, long nanos) {
+        buffer.put(type);
+        putVarLong(Math.max(0, nanos - lastNanos)); // events taken by different threads may be a few nanos apart
+        lastNanos = Math.max(lastNanos, nanos);
+    }
+
+    private void writeOut() {
+        buffer.flip();
+        try {
+            while (buffer.hasRemaining() && !failed)
+                channel.write(buffer);
+        } catch (IOException e) {
+            failed = true;
+            logger.severe("cannot write the journal, it stops here: " + e);
+        }
+        buffer.clear();
+    }
+
+    private void putVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    /**
+     * Writes the events recorded so far and the end record, and closes the file (waits for the writer thread).
+     */
+    public void close() {
+        if (channel == null || closed)
+            return;
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The header of a journal.
+     */
+    public static class Header {
+        public final long seed;
+        public final long startEpochMillis;
+        public final int featureSize, featureCount, rows, columns, players;
+
+        Header(ByteBuffer in) throws IOException {
+            if (in.getInt() != MAGIC)
+                throw new IOException("not a game journal");
+            short version = in.getShort();
+            if (version < 1 || version > VERSION)
+                throw new IOException("unsupported journal version " + version);
+            seed = in.getLong();
+            startEpochMillis = in.getLong();
+            featureSize = in.get();
+            featureCount = in.get();
+            rows = in.get();
+            columns = in.get();
+            players = in.getShort();
+        }
+    }
+
+    /**
+     * One event of a journal.
+     */
+    public static class Event {
+        public final byte type;
+        public final long nanos; // since the start of the journal
+        public final long[] fields;
+
+        Event(byte type, long nanos, long[] fields) {
+            this.type = type;
+            this.nanos = nanos;
+            this.fields = fields;
+        }
+
+        public int field(int i) {
+            return (int) fields[i];
+        }
+    }
+
+    /**
+     * A journal read back into memory.
+     */
+    public static class Contents {
+        public final Header header;
+        public final List<Event> events;
+
+        Contents(Header header, List<Event> events) {
+            this.header = header;
+            this.events = events;
+        }
+    }
+
+    /**
+     * Reads a whole journal (memory mapped). A journal cut short (e.g. the game crashed) is read up to its last
+     * complete record.
+     */
+    public static Contents read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer in = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            Header header = new Header(in);
+            List<Event> events = new ArrayList<>();
+            long nanos = 0;
+            try {
+                while (in.hasRemaining()) {
+                    byte type = in.get();
+                    nanos += getVarLong(in);
+                    long[] fields;
+                    if (type == CLAIM) {
+                        long player = getVarLong(in);
+                        fields = new long[1 + (int) getVarLong(in)];
+                        fields[0] = player;
+                        for (int i = 1; i < fields.length; i++)
+                            fields[i] = getVarLong(in);
+                    } else {
+                        fields = new long[fieldCount(type)];
+                        for (int i = 0; i < fields.length; i++)
+                            fields[i] = getVarLong(in);
+                    }
+                    events.add(new Event(type, nanos, fields));
+                    if (type == END)
+                        break;
+                }
+            } catch (BufferUnderflowException truncated) {
+                // the last record was not completely written
+            }
+            return new Contents(header, events);
+        } catch (BufferUnderflowException e) {
+            throw new EOFException("the journal header is incomplete");
+        }
+    }
+
+    private static int fieldCount(byte type) {
+        switch (type) {
+            case CARD_PLACED:
+            case CARD_REMOVED:
+            case TOKEN_PLACED:
+            case TOKEN_REMOVED:
+            case VERDICT:
+                return 2;
+            case FREEZE:
+                return 3;
+            case NEW_GAME:
+                return 1;
+            case RESHUFFLE:
+            case END:
+                return 0;
+            default:
+                throw new BufferUnderflowException(); // garbage at the end of a cut journal
+        }
+    }
+
+    private static long getVarLong(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+    }
+}
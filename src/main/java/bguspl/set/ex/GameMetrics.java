@@ -0,0 +1,303 @@
+package bguspl.set.ex;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Always-on counters of the game, updated by the dealer, the players and the table, and exposed as a JMX MBean so a
+ * running game can be watched with JConsole / VisualVM instead of the log. Every update is a single atomic
+ * operation, so the game threads never wait for the metrics (or for each other because of them).
+ */
+public class GameMetrics implements GameMetricsMBean {
+
+    /**
+     * The name the metrics are registered under.
+     */
+    public static final String OBJECT_NAME = "bguspl.set:type=GameMetrics";
+
+    private static final int VERDICTS = 3;
+
+    private final LatencyHistogram claimLatency = new LatencyHistogram();
+    private final AtomicLongArray claims = new AtomicLongArray(VERDICTS);
+    private final AtomicInteger claimQueueDepth = new AtomicInteger();
+    private final AtomicInteger claimQueueMaxDepth = new AtomicInteger();
+    private final LongAdder wakeupsByTimeout = new LongAdder();
+    private final LongAdder wakeupsByNotify = new LongAdder();
+    private final AtomicLong reshuffles = new AtomicLong();
+    private final AtomicLong reshuffleTotalNanos = new AtomicLong();
+    private final AtomicLong reshuffleMaxNanos = new AtomicLong();
+    private final LongAdder cardsPlaced = new LongAdder();
+    private final LongAdder cardsRemoved = new LongAdder();
+    private final AtomicLongArray freezeMillis;
+    private final AtomicLongArray penalties;
+    private volatile long startNanos = System.nanoTime();
+
+    /**
+     * @param players - the number of players.
+     */
+    public GameMetrics(int players) {
+        freezeMillis = new AtomicLongArray(players);
+        penalties = new AtomicLongArray(players);
+    }
+
+    /**
+     * Registers the metrics with the platform MBean server, replacing metrics of an earlier game in the same JVM.
+     *
+     * @param logger - for reporting a failure (the game goes on without the MBean).
+     * @return - true iff the metrics were registered.
+     */
+    public boolean register(Logger logger) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name))
+                server.unregisterMBean(name);
+            server.registerMBean(this, name);
+            return true;
+        } catch (JMException | SecurityException e) {
+            logger.warning("could not register the game metrics: " + e);
+            return false;
+        }
+    }
+
+    /**
+     * Removes the metrics from the platform MBean server.
+     *
+     * @param logger - for reporting a failure.
+     */
+    public void unregister(Logger logger) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name))
+                server.unregisterMBean(name);
+        } catch (JMException | SecurityException e) {
+            logger.warning("could not unregister the game metrics: " + e);
+        }
+    }
+
+    /**
+     * A player asked the dealer to check a set (its claim joined the dealer's queue).
+     */
+    public void claimQueued() {
+        int depth = claimQueueDepth.incrementAndGet();
+        claimQueueMaxDepth.accumulateAndGet(depth, Math::max);
+    }
+
+    /**
+     * The dealer took a claim out of its queue and is about to check it.
+     */
+    public void claimDequeued() {
+        claimQueueDepth.decrementAndGet();
+    }
+
+    /**
+     * The dealer gave a verdict on a claim.
+     *
+     * @param verdict      - 0 - wrong set, 1 - legal set, 2 - a token was removed before the check.
+     * @param latencyNanos - the time from the claim to the verdict.
+     */
+    public void claimVerified(int verdict, long latencyNanos) {
+        if (verdict >= 0 && verdict < VERDICTS)
+            claims.incrementAndGet(verdict);
+        claimLatency.record(latencyNanos);
+    }
+
+    /**
+     * The dealer woke up from waiting for claims.
+     *
+     * @param notified - true iff a player woke it up, false if the wait timed out.
+     */
+    public void dealerWokeUp(boolean notified) {
+        (notified ? wakeupsByNotify : wakeupsByTimeout).increment();
+    }
+
+    /**
+     * The dealer returned all the cards to the deck and dealt new ones.
+     *
+     * @param nanos - how long it took.
+     */
+    public void reshuffled(long nanos) {
+        reshuffles.incrementAndGet();
+        reshuffleTotalNanos.addAndGet(nanos);
+        reshuffleMaxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public void cardPlaced() {
+        cardsPlaced.increment();
+    }
+
+    public void cardRemoved() {
+        cardsRemoved.increment();
+    }
+
+    /**
+     * A player was frozen.
+     *
+     * @param player  - the player id.
+     * @param millis  - for how long.
+     * @param penalty - true for a wrong set, false after a point.
+     */
+    public void frozen(int player, long millis, boolean penalty) {
+        if (player < 0 || player >= freezeMillis.length())
+            return;
+        freezeMillis.addAndGet(player, millis);
+        if (penalty)
+            penalties.incrementAndGet(player);
+    }
+
+    @Override
+    public long getClaimLatencyCount() {
+        return claimLatency.count();
+    }
+
+    @Override
+    public double getClaimLatencyMeanMillis() {
+        return claimLatency.mean() / 1_000_000.0;
+    }
+
+    @Override
+    public double getClaimLatencyP50Millis() {
+        return claimLatency.percentile(50) / 1_000_000.0;
+    }
+
+    @Override
+    public double getClaimLatencyP90Millis() {
+        return claimLatency.percentile(90) / 1_000_000.0;
+    }
+
+    @Override
+    public double getClaimLatencyP99Millis() {
+        return claimLatency.percentile(99) / 1_000_000.0;
+    }
+
+    @Override
+    public double getClaimLatencyP999Millis() {
+        return claimLatency.percentile(99.9) / 1_000_000.0;
+    }
+
+    @Override
+    public double getClaimLatencyMaxMillis() {
+        return claimLatency.max() / 1_000_000.0;
+    }
+
+    @Override
+    public long[] getClaims() {
+        long[] result = new long[VERDICTS];
+        for (int i = 0; i < VERDICTS; i++)
+            result[i] = claims.get(i);
+        return result;
+    }
+
+    @Override
+    public double[] getClaimsPerSecond() {
+        double seconds = Math.max(getUptimeSeconds(), 1e-3);
+        long[] counts = getClaims();
+        double[] result = new double[VERDICTS];
+        for (int i = 0; i < VERDICTS; i++)
+            result[i] = counts[i] / seconds;
+        return result;
+    }
+
+    @Override
+    public int getClaimQueueDepth() {
+        return claimQueueDepth.get();
+    }
+
+    @Override
+    public int getClaimQueueMaxDepth() {
+        return claimQueueMaxDepth.get();
+    }
+
+    @Override
+    public long getDealerWakeupsByTimeout() {
+        return wakeupsByTimeout.sum();
+    }
+
+    @Override
+    public long getDealerWakeupsByNotify() {
+        return wakeupsByNotify.sum();
+    }
+
+    @Override
+    public long getReshuffles() {
+        return reshuffles.get();
+    }
+
+    @Override
+    public double getReshuffleTotalMillis() {
+        return reshuffleTotalNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public double getReshuffleMaxMillis() {
+        return reshuffleMaxNanos.get() / 1_000_000.0;
+    }
+
+    @Override
+    public long getCardsPlaced() {
+        return cardsPlaced.sum();
+    }
+
+    @Override
+    public long getCardsRemoved() {
+        return cardsRemoved.sum();
+    }
+
+    @Override
+    public long[] getFreezeMillis() {
+        long[] result = new long[freezeMillis.length()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = freezeMillis.get(i);
+        return result;
+    }
+
+    @Override
+    public long[] getPenalties() {
+        long[] result = new long[penalties.length()];
+        for (int i = 0; i < result.length; i++)
+            result[i] = penalties.get(i);
+        return result;
+    }
+
+    @Override
+    public double getUptimeSeconds() {
+        return (System.nanoTime() - startNanos) / 1e9;
+    }
+
+    @Override
+    public void reset() {
+        claimLatency.reset();
+        for (int i = 0; i < VERDICTS; i++)
+            claims.set(i, 0);
+        claimQueueMaxDepth.set(claimQueueDepth.get());
+        wakeupsByTimeout.reset();
+        wakeupsByNotify.reset();
+        reshuffles.set(0);
+        reshuffleTotalNanos.set(0);
+        reshuffleMaxNanos.set(0);
+        cardsPlaced.reset();
+        cardsRemoved.reset();
+        // not the players' penalties and freeze times: a game's are their growth since it started (see Dealer)
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * @return - a one line summary for the log.
+     */
+    public String summary() {
+        long[] verdicts = getClaims();
+        return String.format("claims: %d wrong, %d legal, %d stale; latency p50 %.2f ms, p99 %.2f ms, max %.2f ms; "
+                        + "dealer woken %d times by claims, %d by timeout; %d reshuffles (%.1f ms at most)",
+                verdicts[0], verdicts[1], verdicts[2], getClaimLatencyP50Millis(), getClaimLatencyP99Millis(),
+                getClaimLatencyMaxMillis(), getDealerWakeupsByNotify(), getDealerWakeupsByTimeout(), getReshuffles(),
+                getReshuffleMaxMillis());
+    }
+}
@@ -0,0 +1,57 @@
+package bguspl.set.ex;
+
+/**
+ * The management interface of the game metrics, as shown in JConsole / VisualVM under bguspl.set:type=GameMetrics.
+ * Durations are in milliseconds, arrays of claims are indexed by the verdict (0 - wrong set, 1 - legal set,
+ * 2 - a token was removed before the check) and arrays of players by the player id.
+ */
+public interface GameMetricsMBean {
+
+    long getClaimLatencyCount();
+
+    double getClaimLatencyMeanMillis();
+
+    double getClaimLatencyP50Millis();
+
+    double getClaimLatencyP90Millis();
+
+    double getClaimLatencyP99Millis();
+
+    double getClaimLatencyP999Millis();
+
+    double getClaimLatencyMaxMillis();
+
+    long[] getClaims();
+
+    double[] getClaimsPerSecond();
+
+    int getClaimQueueDepth();
+
+    int getClaimQueueMaxDepth();
+
+    long getDealerWakeupsByTimeout();
+
+    long getDealerWakeupsByNotify();
+
+    long getReshuffles();
+
+    double getReshuffleTotalMillis();
+
+    double getReshuffleMaxMillis();
+
+    long getCardsPlaced();
+
+    long getCardsRemoved();
+
+    long[] getFreezeMillis();
+
+    long[] getPenalties();
+
+    double getUptimeSeconds();
+
+    /**
+     * Clears all the counters and histograms (gauges such as the queue depth keep their value), except the players'
+     * penalties and freeze times, which the dealer reads for the match history and which only ever grow.
+     */
+    void reset();
+}
@@ -0,0 +1,290 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.GameRandom;
+import bguspl.set.KeyLatency;
+import bguspl.set.UserInterface;
+import bguspl.set.UserInterfaceAsync;
+import bguspl.set.UserInterfaceDecorator;
+import bguspl.set.UserInterfaceSwing;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+
+import java.awt.GraphicsEnvironment;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * Replays a game journal (see GameJournal) against a table of its own: the cards and the tokens move as they did in
+ * the game and every verdict of the dealer is checked again on the replayed board, so a replay shows where a game
+ * went wrong (a divergence) and gives a benchmark the traffic of a real game.
+ * <p>
+ * A replay runs as fast as it can, or at the pace the events were recorded at (or a multiple of it) for watching it
+ * on the screen. The dealer is not replayed: its decisions are the journal's, the replay only checks them.
+ * A journal of several games (Games=...) is replayed game after game, the scores and freezes start again at each.
+ * <p>
+ * Run: java -cp target/classes bguspl.set.ex.GameReplay journal-file [speed] (e.g. 1 for the recorded pace, 0 or
+ * nothing for as fast as possible)
+ */
+public class GameReplay {
+
+    /**
+     * What a replay found.
+     */
+    public static class Result {
+        public int events;
+        public int claims;
+        public int reshuffles;
+        public int penalties;
+        public int games = 1;
+        public final int[] scores; // of the last game
+        public final List<String> divergences = new ArrayList<>();
+        public Integer[] board;
+        public double seconds;
+
+        Result(int players) {
+            scores = new int[players];
+        }
+
+        void divergence(GameJournal.Event event, String what) {
+            if (divergences.size() < 100)
+                divergences.add(String.format("%.3f s: %s", event.nanos / 1e9, what));
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d events (%d games, %d claims, %d penalties, %d reshuffles) in %.3f s, scores %s, "
+                    + "%d divergences", events, games, claims, penalties, reshuffles, seconds, Arrays.toString(scores),
+                    divergences.size());
+        }
+    }
+
+    private final Env env;
+    private final GameJournal.Contents journal;
+    private final Table table;
+    private final Player[] players;
+
+    /**
+     * @param env     - the environment of the replay (see config()), its table matches the journal's.
+     * @param journal - the journal to replay.
+     */
+    public GameReplay(Env env, GameJournal.Contents journal) {
+        this.env = env;
+        this.journal = journal;
+        table = new Table(env);
+        players = new Player[journal.header.players];
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, null, table, i, true);
+    }
+
+    /**
+     * @return - the configuration of the journal's game (no table delay, no journal of the replay itself).
+     */
+    public static Config config(GameJournal.Header header, Logger logger) {
+        Properties properties = new Properties();
+        properties.put("LogLevel", logger.getLevel() == null ? "ALL" : logger.getLevel().getName());
+        properties.put("FeatureSize", String.valueOf(header.featureSize));
+        properties.put("FeatureCount", String.valueOf(header.featureCount));
+        properties.put("Rows", String.valueOf(header.rows));
+        properties.put("Columns", String.valueOf(header.columns));
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", String.valueOf(header.players));
+        properties.put("TableDelaySeconds", "0");
+        return new Config(logger, properties);
+    }
+
+    /**
+     * The players of the replay (for the user interface).
+     */
+    public Player[] players() {
+        return players;
+    }
+
+    /**
+     * Replays the whole journal.
+     *
+     * @param speed - the pace relative to the recorded one (e.g. 1 for the recorded pace, 2 for twice as fast), 0
+     *              for as fast as possible.
+     * @return - what the replay found.
+     */
+    public Result run(double speed) {
+        Result result = new Result(players.length);
+        long[] frozenUntil = new long[players.length];
+        table.gate.open(); // the journal has the tokens that were placed, whether the gate is open does not matter
+        long start = System.nanoTime();
+        for (GameJournal.Event event : journal.events) {
+            if (speed > 0 && !waitFor(start + (long) (event.nanos / speed)))
+                break;
+            if (speed > 0)
+                thaw(frozenUntil);
+            apply(event, result, frozenUntil, start, speed);
+            result.events++;
+        }
+        result.seconds = (System.nanoTime() - start) / 1e9;
+        result.board = table.slotsSnapshot();
+        return result;
+    }
+
+    private void apply(GameJournal.Event event, Result result, long[] frozenUntil, long start, double speed) {
+        switch (event.type) {
+            case GameJournal.CARD_PLACED: {
+                int slot = event.field(0), card = event.field(1);
+                if (table.slotToCard(slot) != null || table.cardToSlot[card] != null)
+                    result.divergence(event, "card " + card + " placed in slot " + slot + ", which has card "
+                            + table.slotToCard(slot) + " (the card is in slot " + table.cardToSlot[card] + ")");
+                else
+                    table.placeCard(card, slot);
+                break;
+            }
+            case GameJournal.CARD_REMOVED: {
+                int slot = event.field(0), card = event.field(1);
+                Integer actual = table.slotToCard(slot);
+                if (actual == null || actual != card)
+                    result.divergence(event, "card " + card + " removed from slot " + slot + ", which has card " + actual);
+                if (actual != null)
+                    table.removeCard(slot, players);
+                break;
+            }
+            case GameJournal.TOKEN_PLACED: {
+                Player player = players[event.field(0)];
+                int slot = event.field(1);
+                if (table.slotToCard(slot) == null)
+                    result.divergence(event, "player " + player.id + " placed a token on the empty slot " + slot);
+                else
+                    table.placeToken(player, slot);
+                break;
+            }
+            case GameJournal.TOKEN_REMOVED:
+                if (!table.removeToken(players[event.field(0)], event.field(1)))
+                    result.divergence(event, "player " + event.field(0) + " removed a token it did not have from slot "
+                            + event.field(1));
+                break;
+            case GameJournal.CLAIM:
+                result.claims++;
+                break;
+            case GameJournal.VERDICT:
+                verdict(event, result);
+                break;
+            case GameJournal.FREEZE: {
+                int player = event.field(0);
+                long millis = event.fields[1];
+                if (event.fields[2] != 0)
+                    result.penalties++;
+                if (speed > 0) {
+                    frozenUntil[player] = start + (long) ((event.nanos + millis * 1_000_000) / speed);
+                    env.ui.setFreeze(player, millis);
+                }
+                break;
+            }
+            case GameJournal.RESHUFFLE:
+                result.reshuffles++;
+                break;
+            case GameJournal.NEW_GAME:
+                result.games++;
+                for (int player = 0; player < players.length; player++) {
+                    result.scores[player] = 0;
+                    frozenUntil[player] = 0;
+                    env.ui.setScore(player, 0);
+                    env.ui.setFreeze(player, 0);
+                }
+                break;
+            case GameJournal.END:
+                break;
+            default:
+                result.divergence(event, "unknown event type " + event.type);
+        }
+    }
+
+    /**
+     * Checks a verdict of the dealer on the replayed board: the player's tokens are the ones the dealer checked, and
+     * the cards the tokens are on are still on the table (the dealer journals the verdict before removing them).
+     */
+    private void verdict(GameJournal.Event event, Result result) {
+        Player player = players[event.field(0)];
+        int verdict = event.field(1);
+        Integer[] slots;
+        synchronized (player.myTokens) {
+            slots = player.myTokens.toArray(new Integer[0]);
+        }
+        int expected;
+        if (slots.length != env.config.featureSize) {
+            expected = 2;
+        } else {
+            int[] cards = new int[slots.length];
+            for (int i = 0; i < slots.length; i++)
+                cards[i] = table.slotToCard(slots[i]);
+            expected = env.util.testSet(cards) ? 1 : 0;
+        }
+        if (expected != verdict)
+            result.divergence(event, "the dealer gave player " + player.id + " the verdict " + verdict
+                    + " on the slots " + Arrays.toString(slots) + ", the replay gives " + expected);
+        if (verdict == 1) {
+            result.scores[player.id]++;
+            env.ui.setScore(player.id, result.scores[player.id]);
+        }
+    }
+
+    private void thaw(long[] frozenUntil) {
+        long now = System.nanoTime();
+        for (int player = 0; player < frozenUntil.length; player++) {
+            if (frozenUntil[player] != 0 && now >= frozenUntil[player]) {
+                frozenUntil[player] = 0;
+                env.ui.setFreeze(player, 0);
+            }
+        }
+    }
+
+    /**
+     * @return - false if interrupted.
+     */
+    private static boolean waitFor(long nanoTime) {
+        long left;
+        while ((left = nanoTime - System.nanoTime()) > 0) {
+            try {
+                Thread.sleep(left / 1_000_000, (int) (left % 1_000_000));
+            } catch (InterruptedException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("usage: GameReplay journal-file [speed]");
+            return;
+        }
+        GameJournal.Contents journal = GameJournal.read(Paths.get(args[0]));
+        double speed = args.length > 1 ? Double.parseDouble(args[1]) : 0;
+
+        Logger logger = Logger.getLogger("SetGameReplay");
+        Config config = config(journal.header, logger);
+        GameRandom random = new GameRandom(config);
+        Util util = new UtilImpl(config, random);
+        Player[] players = new Player[config.players];
+        KeyLatency keyLatency = new KeyLatency(config.players, config.tableSize);
+        UserInterface ui = null;
+        if (speed > 0 && !GraphicsEnvironment.isHeadless()) {
+            ui = new UserInterfaceSwing(logger, config, players, keyLatency);
+            ui = new UserInterfaceAsync(logger, config, ui);
+        }
+        Env env = new Env(logger, config, new UserInterfaceDecorator(logger, util, ui), util, keyLatency,
+                random);
+        GameReplay replay = new GameReplay(env, journal);
+        System.arraycopy(replay.players(), 0, players, 0, players.length);
+
+        System.out.printf("replaying %d events of %d players (seed %d)%n", journal.events.size(), config.players,
+                journal.header.seed);
+        Result result = replay.run(speed);
+        System.out.println(result);
+        result.divergences.forEach(System.out::println);
+        env.ui.dispose();
+        System.exit(result.divergences.isEmpty() ? 0 : 1);
+    }
+}
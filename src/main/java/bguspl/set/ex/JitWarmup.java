@@ -0,0 +1,149 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.GameRandom;
+import bguspl.set.KeyLatency;
+import bguspl.set.UserInterfaceDecorator;
+
+import java.lang.management.CompilationMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Runs the game's hot code before the first deal (WarmupSeconds=...), so the first claims of the game are not served
+ * by the interpreter: a game of its own is played by computer players (finding and testing sets, placing and removing
+ * cards and tokens, claims going from the players through the dealer to the verdict) until the JIT compiler has been
+ * quiet for a while or the time budget is spent.
+ * <p>
+ * The warm-up game has its own configuration (the deck and table of the game, no table delay, freezes, journal,
+ * checkpoint or history), user interface (none), log (off) and randomness, so it leaves the game, and its seeded deal,
+ * untouched.
+ */
+public class JitWarmup {
+
+    /**
+     * The JIT compiler is taken to be done with the hot methods after this long without compiling.
+     */
+    private static final long QUIET_MILLIS = 250;
+
+    /**
+     * The claims to verify before the warm-up may stop, so the claim path was run often enough to be compiled.
+     */
+    private static final long MIN_CLAIMS = 200;
+
+    private static final long POLL_MILLIS = 10;
+
+    /**
+     * How long the warm-up took, the claims verified, the time the JIT compiler spent meanwhile (-1 if the JVM does not
+     * tell) and whether it stopped because the compiler was quiet (rather than at the end of the budget).
+     */
+    public final long millis;
+    public final long claims;
+    public final long compileMillis;
+    public final boolean compiled;
+
+    private JitWarmup(long millis, long claims, long compileMillis, boolean compiled) {
+        this.millis = millis;
+        this.claims = claims;
+        this.compileMillis = compileMillis;
+        this.compiled = compiled;
+    }
+
+    /**
+     * Warms up the code of a game.
+     *
+     * @param env          - the game's environment (for its configuration and util).
+     * @param budgetMillis - the most time to spend.
+     */
+    public static JitWarmup run(Env env, long budgetMillis) {
+        long start = System.currentTimeMillis();
+        CompilationMXBean compiler = ManagementFactory.getCompilationMXBean();
+        boolean timed = compiler != null && compiler.isCompilationTimeMonitoringSupported();
+        long compileStart = timed ? compiler.getTotalCompilationTime() : 0;
+
+        Env warmEnv = environment(env);
+        Table table = new Table(warmEnv);
+        Player[] players = new Player[warmEnv.config.players];
+        Dealer dealer = new Dealer(warmEnv, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(warmEnv, dealer, table, i, false);
+        Thread dealerThread = new Thread(dealer, "warmup-dealer");
+        dealerThread.start();
+
+        boolean compiled = false;
+        long compileTime = timed ? compiler.getTotalCompilationTime() : 0;
+        long quietSince = System.currentTimeMillis();
+        while (System.currentTimeMillis() - start < budgetMillis && dealerThread.isAlive()) {
+            try {
+                Thread.sleep(POLL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            if (!timed)
+                continue;
+            long now = compiler.getTotalCompilationTime();
+            if (now != compileTime) {
+                compileTime = now;
+                quietSince = System.currentTimeMillis();
+            } else if (System.currentTimeMillis() - quietSince >= QUIET_MILLIS
+                    && Arrays.stream(table.metrics.getClaims()).sum() >= MIN_CLAIMS) {
+                compiled = true;
+                break;
+            }
+        }
+        dealer.terminate();
+        synchronized (dealer.lock) {
+            dealer.lock.notifyAll(); // rather than the dealer's next timeout
+        }
+        try {
+            dealerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return new JitWarmup(System.currentTimeMillis() - start, Arrays.stream(table.metrics.getClaims()).sum(),
+                timed ? compiler.getTotalCompilationTime() - compileStart : -1, compiled);
+    }
+
+    /**
+     * The environment of the warm-up game: the deck and the table of the game, played by computer players as fast as
+     * they can, with nothing shown, logged or written.
+     */
+    private static Env environment(Env env) {
+        Properties properties = new Properties();
+        properties.put("LogLevel", "OFF");
+        properties.put("FeatureSize", String.valueOf(env.config.featureSize));
+        properties.put("FeatureCount", String.valueOf(env.config.featureCount));
+        properties.put("Rows", String.valueOf(env.config.rows));
+        properties.put("Columns", String.valueOf(env.config.columns));
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", String.valueOf(Math.max(2, env.config.players)));
+        properties.put("ComputerStrategy", "Solver");
+        properties.put("ComputerErrorRate", "0.3"); // wrong claims too, for the penalty path
+        properties.put("ComputerPressesPerSecond", "0");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("TurnTimeoutSeconds", "1"); // reshuffles too
+        properties.put("TurnTimeoutWarningSeconds", "0");
+        properties.put("PointFreezeSeconds", "0");
+        properties.put("PenaltyFreezeSeconds", "0");
+        properties.put("Games", "0"); // the deck may run out before the budget does
+        properties.put("RematchPauseSeconds", "0");
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Config config = new Config(logger, properties);
+        logger.setLevel(Level.OFF);
+        return new Env(logger, config, new UserInterfaceDecorator(logger, env.util, null), env.util,
+                new KeyLatency(config.players, config.tableSize), new GameRandom(config)); // not the game's streams
+    }
+
+    @Override
+    public String toString() {
+        return String.format("warm-up: %d claims verified in %d ms, %s of JIT compilation, %s.", claims, millis,
+                compileMillis < 0 ? "unknown time" : compileMillis + " ms",
+                compiled ? "stopped when the compiler was done" : "stopped at the end of the budget");
+    }
+}
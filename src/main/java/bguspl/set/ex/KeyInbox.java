@@ -0,0 +1,66 @@
+package bguspl.set.ex;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, lock-free hand-off of key presses from the input (Swing event) thread to a player thread.
+ * offer never blocks: when the inbox is full the press is dropped and counted instead.
+ */
+public class KeyInbox {
+
+    private final ConcurrentLinkedQueue<Integer> slots = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicLong dropped = new AtomicLong();
+    private final int capacity;
+
+    /**
+     * @param capacity - the maximum number of presses waiting to be handled.
+     */
+    public KeyInbox(int capacity) {
+        this.capacity = capacity;
+    }
+
+    /**
+     * Adds a key press without waiting.
+     *
+     * @param slot - the slot corresponding to the key pressed.
+     * @return - true iff the press was added, false if it was dropped because the inbox is full.
+     */
+    public boolean offer(int slot) {
+        if (size.incrementAndGet() > capacity) { // reserve a place first, so the bound holds for concurrent offers
+            size.decrementAndGet();
+            dropped.incrementAndGet();
+            return false;
+        }
+        slots.offer(slot);
+        return true;
+    }
+
+    /**
+     * Removes the oldest key press.
+     *
+     * @return - the slot of the oldest press, or null if there is none.
+     */
+    public Integer poll() {
+        Integer slot = slots.poll();
+        if (slot != null)
+            size.decrementAndGet();
+        return slot;
+    }
+
+    /**
+     * Removes all the waiting key presses.
+     */
+    public void clear() {
+        while (poll() != null)
+            ;
+    }
+
+    /**
+     * @return - the number of presses dropped because the inbox was full.
+     */
+    public long dropped() {
+        return dropped.get();
+    }
+}
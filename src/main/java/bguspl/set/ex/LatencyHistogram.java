@@ -0,0 +1,103 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A lock free histogram of durations (in nanoseconds) with a fixed relative error, in the style of HdrHistogram.
+ * Values below 128 get a bucket each, and every power of two above that is split into 64 linear sub-buckets, so any
+ * recorded value is reported within 1/64 (about 1.6%) of its real value, from nanoseconds up to centuries, in a fixed
+ * array of a few thousand counters. Recording is a couple of shifts and an atomic increment.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKETS = 128;
+    private static final int HALF = SUB_BUCKETS / 2;
+    private static final int HALF_BITS = 6; // log2(HALF)
+    private static final int BUCKETS = SUB_BUCKETS + (63 - HALF_BITS - 1) * HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * Records a duration. Negative values are recorded as 0.
+     *
+     * @param nanos - the duration in nanoseconds.
+     */
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(indexOf(value));
+        count.incrementAndGet();
+        sum.addAndGet(value);
+        max.accumulateAndGet(value, Math::max);
+    }
+
+    /**
+     * @return - the number of recorded values.
+     */
+    public long count() {
+        return count.get();
+    }
+
+    /**
+     * @return - the mean of the recorded values in nanoseconds (0 if none).
+     */
+    public double mean() {
+        long n = count.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * @return - the largest recorded value in nanoseconds (exact).
+     */
+    public long max() {
+        return max.get();
+    }
+
+    /**
+     * @param percentile - between 0 and 100.
+     * @return - the smallest value (in nanoseconds, up to the histogram's precision) that is at least as large as the
+     *         given percentage of the recorded values, or 0 if nothing was recorded.
+     */
+    public long percentile(double percentile) {
+        long total = count.get();
+        if (total == 0)
+            return 0;
+        long target = Math.max(1, (long) Math.ceil(Math.min(100, Math.max(0, percentile)) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= target)
+                return Math.min(highestValueAt(i), max.get());
+        }
+        return max.get(); // records that raced with this scan
+    }
+
+    /**
+     * Clears all the recorded values. Values recorded concurrently may be partly kept.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++)
+            counts.set(i, 0);
+        count.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS)
+            return (int) value;
+        int shift = 63 - Long.numberOfLeadingZeros(value) - HALF_BITS; // value >> shift is in [HALF, SUB_BUCKETS)
+        return SUB_BUCKETS + (shift - 1) * HALF + (int) ((value >> shift) - HALF);
+    }
+
+    static long highestValueAt(int index) {
+        if (index < SUB_BUCKETS)
+            return index;
+        int shift = (index - SUB_BUCKETS) / HALF + 1;
+        long sub = (index - SUB_BUCKETS) % HALF + HALF;
+        return ((sub + 1) << shift) - 1;
+    }
+}
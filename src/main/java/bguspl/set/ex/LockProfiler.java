@@ -0,0 +1,396 @@
+package bguspl.set.ex;
+
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MonitorInfo;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+/**
+ * Measures how long the game threads wait for the game's locks and how long they hold them (ProfileLocks=True).
+ * Explicit locks (the table's read/write lock, the dealer's semaphore) are wrapped, so every acquisition is timed
+ * exactly. Monitors (synchronized blocks) cannot be wrapped, so a background thread samples the state of the game
+ * threads (the ones given to profileThread, not every thread of the JVM) every sampleMillis (LockSampleMillis=...)
+ * and charges the time since the previous sample to the monitors they are blocked on or holding. Every sample stops
+ * the sampled threads for a moment, so the interval should not be much shorter than the default. When profiling is
+ * off, wrap returns the lock itself and nothing runs.
+ */
+public class LockProfiler {
+
+    /**
+     * The default interval between two samples of the monitors.
+     */
+    public static final long DEFAULT_SAMPLE_MILLIS = 10;
+
+    /**
+     * The number of locks shown in the report (the ones waited for the longest).
+     */
+    private static final int REPORT_SIZE = 20;
+
+    private final boolean enabled;
+    private final long sampleMillis;
+    private final Set<Long> threadIds = ConcurrentHashMap.newKeySet();
+    private volatile long[] sampledIds = new long[0];
+    private final Map<String, LockStats> stats = new ConcurrentHashMap<>();
+    private final Map<Integer, String> monitorNames = new ConcurrentHashMap<>();
+    private volatile boolean sampling;
+    private Thread sampler;
+
+    public LockProfiler(boolean enabled) {
+        this(enabled, DEFAULT_SAMPLE_MILLIS);
+    }
+
+    /**
+     * @param enabled      - whether to profile at all.
+     * @param sampleMillis - the interval between two samples of the monitors.
+     */
+    public LockProfiler(boolean enabled, long sampleMillis) {
+        this.enabled = enabled;
+        this.sampleMillis = Math.max(1, sampleMillis);
+    }
+
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * @param name - the name of the lock in the report.
+     * @param lock - the lock to profile.
+     * @return - a lock that times every acquisition of the given one (or the lock itself if profiling is off).
+     */
+    public ReadWriteLock wrap(String name, ReadWriteLock lock) {
+        if (!enabled)
+            return lock;
+        Lock read = new ProfiledLock(lock.readLock(), stats(name + ".read", true));
+        Lock write = new ProfiledLock(lock.writeLock(), stats(name + ".write", true));
+        return new ReadWriteLock() {
+            @Override
+            public Lock readLock() {
+                return read;
+            }
+
+            @Override
+            public Lock writeLock() {
+                return write;
+            }
+        };
+    }
+
+    /**
+     * @param name    - the name of the semaphore in the report.
+     * @param permits - the initial number of permits.
+     * @param fair    - whether the semaphore is fair.
+     * @return - a semaphore whose acquire and release are timed (a plain one if profiling is off).
+     */
+    public Semaphore semaphore(String name, int permits, boolean fair) {
+        if (!enabled)
+            return new Semaphore(permits, fair);
+        return new ProfiledSemaphore(permits, fair, stats(name, true));
+    }
+
+    /**
+     * Names a monitor for the report. Blocking on monitors that were not named is reported by their class.
+     *
+     * @param name    - the name of the monitor in the report.
+     * @param monitor - the object that is synchronized on.
+     */
+    public void nameMonitor(String name, Object monitor) {
+        if (enabled)
+            monitorNames.put(System.identityHashCode(monitor), name);
+    }
+
+    /**
+     * Has the monitors a thread blocks on and holds sampled (does nothing if profiling is off).
+     *
+     * @param thread - a game thread.
+     */
+    public void profileThread(Thread thread) {
+        if (enabled && threadIds.add(thread.getId()))
+            sampledIds = threadIds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * Starts sampling the monitors (does nothing if profiling is off or already started).
+     */
+    public synchronized void start() {
+        if (!enabled || sampler != null)
+            return;
+        sampling = true;
+        sampler = new Thread(this::sample, "lock-profiler");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    /**
+     * Stops sampling the monitors and waits for the sampler to finish.
+     */
+    public synchronized void stop() {
+        if (sampler == null)
+            return;
+        sampling = false;
+        sampler.interrupt();
+        try {
+            sampler.join();
+        } catch (InterruptedException ignored) {
+        }
+        sampler = null;
+    }
+
+    /**
+     * @return - the report lines, the locks that were waited for the longest first (empty if profiling is off).
+     */
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+        if (!enabled)
+            return lines;
+        lines.add(String.format("lock contention (ms, * = monitor sampled every %d ms, acquisitions not counted):",
+                sampleMillis));
+        stats.values().stream()
+                .sorted(Comparator.comparingLong((LockStats s) -> s.waitNanos.sum())
+                        .thenComparingLong(s -> s.holdNanos.sum()).reversed())
+                .limit(REPORT_SIZE)
+                .forEach(s -> lines.add(s.toString()));
+        return lines;
+    }
+
+    LockStats stats(String name, boolean exact) {
+        return stats.computeIfAbsent(name, n -> new LockStats(n, exact));
+    }
+
+    private void sample() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        boolean monitors = threads.isObjectMonitorUsageSupported();
+        long last = System.nanoTime();
+        while (sampling && monitors) {
+            try {
+                Thread.sleep(sampleMillis);
+            } catch (InterruptedException e) {
+                break;
+            }
+            long[] ids = sampledIds;
+            if (ids.length == 0)
+                continue;
+            ThreadInfo[] infos = threads.getThreadInfo(ids, true, false); // threads that ended are null
+            long now = System.nanoTime();
+            long elapsed = now - last;
+            last = now;
+            for (ThreadInfo info : infos) {
+                if (info == null || info.getThreadId() == Thread.currentThread().getId())
+                    continue;
+                LockInfo blockedOn = info.getLockInfo();
+                if (info.getThreadState() == Thread.State.BLOCKED && blockedOn != null)
+                    monitorStats(blockedOn).waited(elapsed);
+                for (MonitorInfo held : info.getLockedMonitors())
+                    monitorStats(held).held(info.getThreadName(), elapsed);
+            }
+        }
+    }
+
+    private LockStats monitorStats(LockInfo monitor) {
+        String name = monitorNames.get(monitor.getIdentityHashCode());
+        return stats(name != null ? name : monitor.getClassName() + " (unnamed)", false);
+    }
+
+    /**
+     * The wait and hold times of one lock.
+     */
+    static class LockStats {
+        final String name;
+        final boolean exact;
+        final LongAdder acquisitions = new LongAdder();
+        final LongAdder contended = new LongAdder();
+        final LongAdder waitNanos = new LongAdder();
+        final LongAdder holdNanos = new LongAdder();
+        final AtomicLong maxWaitNanos = new AtomicLong();
+        final AtomicLong maxHoldNanos = new AtomicLong();
+        final Map<String, LongAdder> holders = new ConcurrentHashMap<>(); // hold time by thread name
+
+        LockStats(String name, boolean exact) {
+            this.name = name;
+            this.exact = exact;
+        }
+
+        void acquired(long waited) {
+            acquisitions.increment();
+            if (waited > 0) {
+                contended.increment();
+                waited(waited);
+            }
+        }
+
+        void waited(long nanos) {
+            waitNanos.add(nanos);
+            maxWaitNanos.accumulateAndGet(nanos, Math::max);
+        }
+
+        void held(String thread, long nanos) {
+            holdNanos.add(nanos);
+            maxHoldNanos.accumulateAndGet(nanos, Math::max);
+            holders.computeIfAbsent(thread, t -> new LongAdder()).add(nanos);
+        }
+
+        String topHolder() {
+            return holders.entrySet().stream().max(Comparator.comparingLong(e -> e.getValue().sum()))
+                    .map(e -> String.format("%s (%.1f)", e.getKey(), e.getValue().sum() / 1e6)).orElse("-");
+        }
+
+        @Override
+        public String toString() {
+            if (!exact)
+                return String.format("  %-40s * wait %9.1f hold %9.1f top holder %s",
+                        name, waitNanos.sum() / 1e6, holdNanos.sum() / 1e6, topHolder());
+            return String.format("  %-40s   wait %9.1f (max %6.2f, %d of %d contended) hold %9.1f (max %6.2f) top holder %s",
+                    name, waitNanos.sum() / 1e6, maxWaitNanos.get() / 1e6, contended.sum(), acquisitions.sum(),
+                    holdNanos.sum() / 1e6, maxHoldNanos.get() / 1e6, topHolder());
+        }
+    }
+
+    /**
+     * Per thread hold depth and the time the outermost hold started, for reentrant and shared locks.
+     */
+    private static class Holds extends ThreadLocal<long[]> {
+        @Override
+        protected long[] initialValue() {
+            return new long[2];
+        }
+
+        void acquired() {
+            long[] hold = get();
+            if (hold[0]++ == 0)
+                hold[1] = System.nanoTime();
+        }
+
+        /**
+         * @return - the hold time if the outermost hold was released, -1 otherwise.
+         */
+        long released() {
+            long[] hold = get();
+            if (hold[0] == 0 || --hold[0] > 0)
+                return -1;
+            return System.nanoTime() - hold[1];
+        }
+    }
+
+    private static class ProfiledLock implements Lock {
+        private final Lock lock;
+        private final LockStats stats;
+        private final Holds holds = new Holds();
+
+        ProfiledLock(Lock lock, LockStats stats) {
+            this.lock = lock;
+            this.stats = stats;
+        }
+
+        /**
+         * Takes the lock if it is free and no thread is queued for it: unlike tryLock(), which takes a read lock past
+         * a queued writer, so the profiled locks are granted in the same order as the locks themselves.
+         */
+        private boolean lockedAtOnce() {
+            try {
+                return lock.tryLock(0, TimeUnit.NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt(); // lock() is not interruptible, keep it for the caller
+                return false;
+            }
+        }
+
+        @Override
+        public void lock() {
+            if (!lockedAtOnce()) {
+                long start = System.nanoTime();
+                lock.lock();
+                stats.acquired(Math.max(1, System.nanoTime() - start));
+            } else {
+                stats.acquired(0);
+            }
+            holds.acquired();
+        }
+
+        @Override
+        public void lockInterruptibly() throws InterruptedException {
+            if (!lock.tryLock(0, TimeUnit.NANOSECONDS)) { // keeps the order, see lockedAtOnce
+                long start = System.nanoTime();
+                lock.lockInterruptibly();
+                stats.acquired(Math.max(1, System.nanoTime() - start));
+            } else {
+                stats.acquired(0);
+            }
+            holds.acquired();
+        }
+
+        @Override
+        public boolean tryLock() {
+            if (!lock.tryLock())
+                return false;
+            stats.acquired(0);
+            holds.acquired();
+            return true;
+        }
+
+        @Override
+        public boolean tryLock(long time, TimeUnit unit) throws InterruptedException {
+            long start = System.nanoTime();
+            if (!lock.tryLock(time, unit))
+                return false;
+            stats.acquired(System.nanoTime() - start);
+            holds.acquired();
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+            long held = holds.released();
+            lock.unlock();
+            if (held >= 0)
+                stats.held(Thread.currentThread().getName(), held);
+        }
+
+        @Override
+        public Condition newCondition() {
+            return lock.newCondition();
+        }
+    }
+
+    private static class ProfiledSemaphore extends Semaphore {
+        private final LockStats stats;
+        private final Holds holds = new Holds();
+
+        ProfiledSemaphore(int permits, boolean fair, LockStats stats) {
+            super(permits, fair);
+            this.stats = stats;
+        }
+
+        @Override
+        public void acquire() throws InterruptedException {
+            if (!super.tryAcquire(0, TimeUnit.NANOSECONDS)) { // unlike tryAcquire(), keeps the fairness
+                long start = System.nanoTime();
+                super.acquire();
+                stats.acquired(Math.max(1, System.nanoTime() - start));
+            } else {
+                stats.acquired(0);
+            }
+            holds.acquired();
+        }
+
+        @Override
+        public void release() {
+            long held = holds.released();
+            super.release();
+            if (held >= 0)
+                stats.held(Thread.currentThread().getName(), held);
+        }
+    }
+}
@@ -0,0 +1,528 @@
+package bguspl.set.ex;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The results of all the games played (HistoryDirectory=...), kept on the local disk in four append only files:
+ * <ul>
+ * <li>matches.dat - one record per game: its times, seed and every player's result (the only variable size file),</li>
+ * <li>matches.idx - one 24 byte entry per game: its end time, where its record is and where its players' entries
+ * start in players.idx,</li>
+ * <li>players.idx - one 16 byte entry per player per game: the player's name id, the game and its sets, penalties
+ * and whether it won,</li>
+ * <li>players.txt - the players' names, one per line, a name's id is its line number.</li>
+ * </ul>
+ * The index files are read into memory when the history is opened, so the lookups by player and by time (a binary
+ * search of the games sorted by their end time, since processes sharing the history may append games out of that
+ * order) and the leaderboards use them alone and never read the games' records. A game is appended record first and
+ * index entries last, so a game cut short by a crash is not in the index and is dropped (and the index files
+ * truncated back) the next time the history is opened.
+ */
+public class MatchHistory implements Closeable {
+
+    static final int MAGIC = 0x5345544D; // "SETM", the start of every record in matches.dat
+    static final int MATCH_ENTRY_SIZE = 24;
+    static final int PLAYER_ENTRY_SIZE = 16;
+
+    /**
+     * The result of one player in a game.
+     */
+    public static class PlayerResult {
+        public final String name;
+        public final int sets;
+        public final int penalties;
+        public final long frozenMillis;
+
+        public PlayerResult(String name, int sets, int penalties, long frozenMillis) {
+            this.name = name;
+            this.sets = sets;
+            this.penalties = penalties;
+            this.frozenMillis = frozenMillis;
+        }
+    }
+
+    /**
+     * One game.
+     */
+    public static class Match {
+        public final long startEpochMillis;
+        public final long durationMillis;
+        public final long seed;
+        public final boolean completed; // false if the game was stopped before its end
+        public final PlayerResult[] players;
+
+        public Match(long startEpochMillis, long durationMillis, long seed, boolean completed, PlayerResult[] players) {
+            this.startEpochMillis = startEpochMillis;
+            this.durationMillis = durationMillis;
+            this.seed = seed;
+            this.completed = completed;
+            this.players = players;
+        }
+
+        public long endEpochMillis() {
+            return startEpochMillis + durationMillis;
+        }
+
+        /**
+         * @return - true iff the player has the highest score of the game (ties all win).
+         */
+        public boolean won(int player) {
+            for (PlayerResult other : players)
+                if (other.sets > players[player].sets)
+                    return false;
+            return true;
+        }
+    }
+
+    /**
+     * A player's totals over some games.
+     */
+    public static class Standing {
+        public final String name;
+        public int matches;
+        public int wins;
+        public int sets;
+        public int penalties;
+
+        Standing(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%-20s %6d wins %6d games %8d sets %8d penalties", name, wins, matches, sets, penalties);
+        }
+    }
+
+    /**
+     * The index entry of a game (matches.idx).
+     */
+    private static class MatchEntry {
+        final long endEpochMillis;
+        final long offset; // of its record in matches.dat
+        final int firstPlayer; // its first entry in players.idx
+        final int playerCount;
+
+        MatchEntry(long endEpochMillis, long offset, int firstPlayer, int playerCount) {
+            this.endEpochMillis = endEpochMillis;
+            this.offset = offset;
+            this.firstPlayer = firstPlayer;
+            this.playerCount = playerCount;
+        }
+    }
+
+    /**
+     * The index entry of a player in a game (players.idx).
+     */
+    private static class PlayerEntry {
+        final int name;
+        final int match;
+        final int sets;
+        final int penalties;
+        final boolean won;
+
+        PlayerEntry(int name, int match, int sets, int penalties, boolean won) {
+            this.name = name;
+            this.match = match;
+            this.sets = sets;
+            this.penalties = penalties;
+            this.won = won;
+        }
+    }
+
+    private static final Comparator<Standing> RANKING = Comparator.<Standing>comparingInt(s -> s.wins).reversed()
+            .thenComparing(Comparator.<Standing>comparingInt(s -> s.sets).reversed())
+            .thenComparingInt(s -> s.penalties)
+            .thenComparing(s -> s.name);
+
+    private final FileChannel data, matchIndex, playerIndex, names;
+    private final List<MatchEntry> matches = new ArrayList<>();
+    private final List<Integer> byEnd = new ArrayList<>(); // the game numbers sorted by end time (ties by number)
+    private final List<PlayerEntry> entries = new ArrayList<>();
+    private final List<String> nameList = new ArrayList<>();
+    private final Map<String, Integer> nameIds = new HashMap<>();
+    private final Map<Integer, List<Integer>> matchesByName = new HashMap<>(); // name id -> its games, in order
+    private final Map<Integer, Standing> totals = new HashMap<>(); // name id -> its all time standing
+    private long namesSize; // the length of players.txt the names were read from
+
+    private MatchHistory(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        data = channel(directory.resolve("matches.dat"));
+        matchIndex = channel(directory.resolve("matches.idx"));
+        playerIndex = channel(directory.resolve("players.idx"));
+        names = channel(directory.resolve("players.txt"));
+    }
+
+    private static FileChannel channel(Path file) throws IOException {
+        return FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Opens (or creates) the history in a directory and reads its indexes.
+     */
+    public static MatchHistory open(Path directory) throws IOException {
+        MatchHistory history = new MatchHistory(directory);
+        try {
+            history.load();
+        } catch (IOException e) {
+            history.close();
+            throw e;
+        }
+        return history;
+    }
+
+    private void load() throws IOException {
+        FileLock lock = matchIndex.lock();
+        try {
+            reload();
+        } finally {
+            lock.release();
+        }
+    }
+
+    /**
+     * Reads the indexes (holding the lock of the history).
+     */
+    private void reload() throws IOException {
+        matches.clear();
+        byEnd.clear();
+        entries.clear();
+        nameList.clear();
+        nameIds.clear();
+        matchesByName.clear();
+        totals.clear();
+        byte[] text = readAll(names);
+        int end = text.length;
+        while (end > 0 && text[end - 1] != '\n')
+            end--; // a name cut short by a crash
+        for (String name : new String(text, 0, end, StandardCharsets.UTF_8).split("\n", -1))
+            if (!name.isEmpty())
+                addName(name);
+        names.truncate(end);
+        namesSize = end;
+
+        ByteBuffer players = ByteBuffer.wrap(readAll(playerIndex));
+        ByteBuffer games = ByteBuffer.wrap(readAll(matchIndex));
+        int wholePlayers = players.remaining() / PLAYER_ENTRY_SIZE;
+        while (games.remaining() >= MATCH_ENTRY_SIZE) {
+            MatchEntry match = new MatchEntry(games.getLong(), games.getLong(), games.getInt(), games.getInt());
+            if (match.firstPlayer != entries.size() || match.firstPlayer + match.playerCount > wholePlayers)
+                break; // the entries of this game were not all written
+            for (int i = 0; i < match.playerCount; i++) {
+                PlayerEntry entry = new PlayerEntry(players.getInt(), players.getInt(), players.getShort(),
+                        players.getShort(), players.getInt() != 0);
+                if (entry.name >= nameList.size() || entry.match != matches.size())
+                    throw new IOException("the player index does not fit the game index");
+                index(entry);
+            }
+            add(match);
+        }
+        // drop what a crash left behind after the last whole game
+        matchIndex.truncate((long) matches.size() * MATCH_ENTRY_SIZE);
+        playerIndex.truncate((long) entries.size() * PLAYER_ENTRY_SIZE);
+    }
+
+    private static byte[] readAll(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0) {
+        }
+        return buffer.array();
+    }
+
+    private int addName(String name) {
+        Integer id = nameIds.get(name);
+        if (id == null) {
+            id = nameList.size();
+            nameList.add(name);
+            nameIds.put(name, id);
+        }
+        return id;
+    }
+
+    private void index(PlayerEntry entry) {
+        entries.add(entry);
+        matchesByName.computeIfAbsent(entry.name, name -> new ArrayList<>()).add(entry.match);
+        add(totals.computeIfAbsent(entry.name, name -> new Standing(nameList.get(name))), entry);
+    }
+
+    private void add(MatchEntry match) {
+        byEnd.add(firstEndingAfter(match.endEpochMillis), matches.size()); // at the end, unless it ended earlier
+        matches.add(match);
+    }
+
+    private static void add(Standing standing, PlayerEntry entry) {
+        standing.matches++;
+        standing.sets += entry.sets;
+        standing.penalties += entry.penalties;
+        if (entry.won)
+            standing.wins++;
+    }
+
+    /**
+     * Appends a game (in any order of end times).
+     */
+    public synchronized void append(Match match) throws IOException {
+        for (PlayerResult player : match.players)
+            if (player.name.contains("\n"))
+                throw new IllegalArgumentException("a player name with a line break: " + player.name);
+        FileLock lock = matchIndex.lock(); // one game at a time, also between processes
+        try {
+            if (matchIndex.size() != (long) matches.size() * MATCH_ENTRY_SIZE || names.size() != namesSize)
+                reload(); // another process appended games (or names, and crashed before its game) since
+            long offset = data.size();
+            write(data, offset, ByteBuffer.wrap(record(match)));
+
+            StringBuilder newNames = new StringBuilder();
+            int[] ids = new int[match.players.length];
+            for (int i = 0; i < ids.length; i++) {
+                int known = nameList.size();
+                ids[i] = addName(match.players[i].name);
+                if (ids[i] == known)
+                    newNames.append(match.players[i].name).append('\n');
+            }
+            if (newNames.length() > 0) {
+                byte[] bytes = newNames.toString().getBytes(StandardCharsets.UTF_8);
+                write(names, namesSize, ByteBuffer.wrap(bytes));
+                namesSize += bytes.length;
+            }
+
+            int number = matches.size();
+            ByteBuffer players = ByteBuffer.allocate(PLAYER_ENTRY_SIZE * ids.length);
+            List<PlayerEntry> added = new ArrayList<>();
+            for (int i = 0; i < ids.length; i++) {
+                PlayerEntry entry = new PlayerEntry(ids[i], number, match.players[i].sets, match.players[i].penalties,
+                        match.won(i));
+                players.putInt(entry.name).putInt(entry.match).putShort((short) entry.sets)
+                        .putShort((short) entry.penalties).putInt(entry.won ? 1 : 0);
+                added.add(entry);
+            }
+            players.flip();
+            write(playerIndex, (long) entries.size() * PLAYER_ENTRY_SIZE, players);
+
+            MatchEntry entry = new MatchEntry(match.endEpochMillis(), offset, entries.size(), ids.length);
+            ByteBuffer game = ByteBuffer.allocate(MATCH_ENTRY_SIZE);
+            game.putLong(entry.endEpochMillis).putLong(entry.offset).putInt(entry.firstPlayer)
+                    .putInt(entry.playerCount);
+            game.flip();
+            data.force(false);
+            playerIndex.force(false);
+            names.force(false);
+            write(matchIndex, (long) matches.size() * MATCH_ENTRY_SIZE, game); // the game counts from here on
+            matchIndex.force(false);
+
+            added.forEach(this::index);
+            add(entry);
+        } finally {
+            lock.release();
+        }
+    }
+
+    private static void write(FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            position += channel.write(buffer, position);
+    }
+
+    private static byte[] record(Match match) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(MAGIC);
+        out.writeLong(match.startEpochMillis);
+        out.writeLong(match.durationMillis);
+        out.writeLong(match.seed);
+        out.writeBoolean(match.completed);
+        out.writeShort(match.players.length);
+        for (PlayerResult player : match.players) {
+            out.writeUTF(player.name);
+            out.writeShort(player.sets);
+            out.writeShort(player.penalties);
+            out.writeLong(player.frozenMillis);
+        }
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @return - the number of games in the history.
+     */
+    public synchronized int size() {
+        return matches.size();
+    }
+
+    /**
+     * Reads a game.
+     *
+     * @param number - the game's number (0 is the first game).
+     */
+    public synchronized Match match(int number) throws IOException {
+        MatchEntry entry = matches.get(number);
+        long end = number + 1 < matches.size() ? matches.get(number + 1).offset : data.size();
+        ByteBuffer in = ByteBuffer.allocate((int) (end - entry.offset));
+        while (in.hasRemaining() && data.read(in, entry.offset + in.position()) >= 0) {
+        }
+        in.flip();
+        if (in.getInt() != MAGIC)
+            throw new IOException("no game record at " + entry.offset);
+        long start = in.getLong(), duration = in.getLong(), seed = in.getLong();
+        boolean completed = in.get() != 0;
+        PlayerResult[] players = new PlayerResult[in.getShort()];
+        for (int i = 0; i < players.length; i++) {
+            byte[] name = new byte[in.getShort()];
+            in.get(name);
+            players[i] = new PlayerResult(new String(name, StandardCharsets.UTF_8), in.getShort(), in.getShort(),
+                    in.getLong());
+        }
+        return new Match(start, duration, seed, completed, players);
+    }
+
+    /**
+     * @return - the numbers of the games that ended in [fromEpochMillis, toEpochMillis), in order.
+     */
+    public synchronized int[] between(long fromEpochMillis, long toEpochMillis) {
+        int first = firstEndingAtOrAfter(fromEpochMillis);
+        int last = firstEndingAtOrAfter(toEpochMillis);
+        int[] numbers = new int[Math.max(0, last - first)];
+        Arrays.setAll(numbers, i -> byEnd.get(first + i));
+        Arrays.sort(numbers);
+        return numbers;
+    }
+
+    /**
+     * @return - the position in byEnd of the first game that ended at or after the time.
+     */
+    private int firstEndingAtOrAfter(long epochMillis) {
+        return search(epochMillis, false);
+    }
+
+    /**
+     * @return - the position in byEnd of the first game that ended after the time.
+     */
+    private int firstEndingAfter(long epochMillis) {
+        return search(epochMillis, true);
+    }
+
+    private int search(long epochMillis, boolean after) {
+        int low = 0, high = byEnd.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            long end = matches.get(byEnd.get(middle)).endEpochMillis;
+            if (end < epochMillis || after && end == epochMillis)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * @return - the numbers of the games the player played, in order.
+     */
+    public synchronized List<Integer> matchesOf(String player) {
+        Integer id = nameIds.get(player);
+        List<Integer> numbers = id == null ? null : matchesByName.get(id);
+        return numbers == null ? Collections.emptyList() : new ArrayList<>(numbers);
+    }
+
+    /**
+     * @return - the player's totals over all its games (no games if it never played).
+     */
+    public synchronized Standing standing(String player) {
+        Integer id = nameIds.get(player);
+        Standing standing = new Standing(player);
+        Standing total = id == null ? null : totals.get(id);
+        if (total != null) {
+            standing.matches = total.matches;
+            standing.wins = total.wins;
+            standing.sets = total.sets;
+            standing.penalties = total.penalties;
+        }
+        return standing;
+    }
+
+    /**
+     * @param top - the number of players to return.
+     * @return - the best players of all time (by wins, then sets, then fewer penalties).
+     */
+    public synchronized List<Standing> leaderboard(int top) {
+        List<Standing> standings = new ArrayList<>();
+        for (Standing total : totals.values())
+            standings.add(standing(total.name));
+        return best(standings, top);
+    }
+
+    /**
+     * @param top - the number of players to return.
+     * @return - the best players of the games that ended in [fromEpochMillis, toEpochMillis).
+     */
+    public synchronized List<Standing> leaderboard(long fromEpochMillis, long toEpochMillis, int top) {
+        int first = firstEndingAtOrAfter(fromEpochMillis);
+        int last = firstEndingAtOrAfter(toEpochMillis);
+        Map<Integer, Standing> standings = new HashMap<>();
+        for (int i = first; i < last; i++) {
+            MatchEntry match = matches.get(byEnd.get(i));
+            for (int j = match.firstPlayer; j < match.firstPlayer + match.playerCount; j++) {
+                PlayerEntry entry = entries.get(j); // a game's entries are next to each other
+                add(standings.computeIfAbsent(entry.name, name -> new Standing(nameList.get(name))), entry);
+            }
+        }
+        return best(new ArrayList<>(standings.values()), top);
+    }
+
+    private static List<Standing> best(List<Standing> standings, int top) {
+        standings.sort(RANKING);
+        return standings.subList(0, Math.min(top, standings.size()));
+    }
+
+    @Override
+    public void close() throws IOException {
+        IOException failure = null;
+        for (FileChannel channel : new FileChannel[]{data, matchIndex, playerIndex, names}) {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+        if (failure != null)
+            throw failure;
+    }
+
+    /**
+     * Prints the leaderboard of a history: MatchHistory directory [days [top]].
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.out.println("usage: MatchHistory history-directory [days [top]]");
+            return;
+        }
+        try (MatchHistory history = open(Paths.get(args[0]))) {
+            int top = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+            List<Standing> standings;
+            if (args.length > 1) {
+                long now = System.currentTimeMillis();
+                standings = history.leaderboard(now - (long) (Double.parseDouble(args[1]) * 86_400_000), now + 1, top);
+            } else {
+                standings = history.leaderboard(top);
+            }
+            System.out.println(history.size() + " games");
+            standings.forEach(System.out::println);
+        }
+    }
+}
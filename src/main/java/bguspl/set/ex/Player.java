@@ -1,10 +1,11 @@
 package bguspl.set.ex;
 import java.util.Arrays;
-import java.util.Random;
 import java.util.Vector;
 import java.util.concurrent.ArrayBlockingQueue;
 import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.LockSupport;
 import bguspl.set.Env;
+import bguspl.set.GameEvents;
 
 /**
  * This class manages the players' threads and data
@@ -16,8 +17,17 @@ public class Player implements Runnable {
 
     protected Integer flag = -1; // changing when the dealer checked my set
 
+    protected long claimNanos; // when the player asked the dealer to check its set (for the claim events)
+
+    private static final long AI_IDLE_MILLIS = 10; // how long a computer player waits before looking at a board with no moves again
+
     protected BlockingQueue<Integer> myQueue;
 
+    /**
+     * The key presses of a human player, handed over from the input thread without locking.
+     */
+    protected final KeyInbox inbox;
+
     protected Dealer dealer;
 
     protected Vector<Integer> myTokens;
@@ -40,7 +50,7 @@ public class Player implements Runnable {
     /**
      * The thread representing the current player.
      */
-    private Thread playerThread;
+    private volatile Thread playerThread;
 
     /**
      * The thread of the AI (computer) player (an additional thread used to generate
@@ -53,6 +63,11 @@ public class Player implements Runnable {
      */
     private final boolean human;
 
+    /**
+     * The strategy that decides the key presses of a computer player (null for a human player).
+     */
+    private final ComputerStrategy strategy;
+
     /**
      * True iff game should be terminated due to an external event.
      */
@@ -61,7 +76,26 @@ public class Player implements Runnable {
     /**
      * The current score of the player.
      */
-    protected int score;
+    protected volatile int score; // volatile so the dealer's checkpoint reads it without waiting for a freeze
+
+    /**
+     * When the player's current freeze ends (System.currentTimeMillis(), 0 if not frozen) and whether it is a
+     * penalty (for the dealer's checkpoint).
+     */
+    protected volatile long frozenUntil;
+    protected volatile boolean frozenPenalty;
+
+    /**
+     * The rest of a freeze to serve when the player thread starts (a resumed game).
+     */
+    private long resumedFreezeMillis;
+    private boolean resumedFreezePenalty;
+
+    /**
+     * True iff the player's tokens of a resumed game are a set to claim when its thread starts (a claim in flight
+     * when the game was saved is not in the checkpoint).
+     */
+    private boolean resumedClaim;
 
     /**
      * The class constructor.
@@ -80,8 +114,17 @@ public class Player implements Runnable {
         this.human = human;
         this.dealer = dealer;
         this.myQueue = new ArrayBlockingQueue<>(env.config.featureSize);
+        this.inbox = new KeyInbox(env.config.featureSize);
         myTokens = new Vector<>(env.config.featureSize);
+        strategy = human ? null : createStrategy(env, id);
+    }
 
+    private static ComputerStrategy createStrategy(Env env, int id) {
+        if (env.config.computerStrategy.equalsIgnoreCase("Solver"))
+            return new SolverStrategy(env, env.random.computer(id));
+        if (!env.config.computerStrategy.equalsIgnoreCase("Random"))
+            env.logger.severe("unknown computer strategy " + env.config.computerStrategy + ", using Random.");
+        return new RandomStrategy(env, env.random.computer(id));
     }
 
     /**
@@ -91,53 +134,26 @@ public class Player implements Runnable {
     @Override
     public void run() {
         playerThread = Thread.currentThread();
+        table.profileThread(playerThread);
         env.logger.info("Thread " + Thread.currentThread().getName() + " starting.");
         if (!human) {
             createArtificialIntelligence();
         }
+        if (resumedFreezeMillis > 0)
+            freez(resumedFreezeMillis, resumedFreezePenalty);
+        if (resumedClaim && !terminate)
+            claimSet();
         while (!terminate) {
-            int slot;
-            synchronized (myQueue) {
-                while (myQueue.isEmpty()) { // removing the head of the queue in thread safe, cancle the buisy waiting
-                    try {
-                        myQueue.notify(); // prevent dead lock
-                        myQueue.wait();
-                    } catch (InterruptedException ex) {
-                        System.out.println(Thread.currentThread().getName()
-                                + " need to be terminated. Stops waiting for the queue to have room");
-                        break;
-                    }
-                }
-                if (terminate && myQueue.size() == 0) // if the game was ended and i have nothing to handle in myQueue
-                    break;
-                slot = myQueue.poll();
-                if (!human) {
-                    myQueue.notify(); // wake up the AI thread and tell him there is space in the queue now
-                }
-            }
+            int slot = nextSlot();
+            if (slot < 0) // interrupted with nothing to handle
+                continue;
+            env.keyLatency.taken(id, slot);
             boolean wasRemoved = table.removeToken(this, slot); // check if the token nedded to be removed and removes
                                                                 // it
             if (!wasRemoved && myTokens.size() < env.config.featureSize) { // place token, only if we have room
                 table.placeToken(this, slot);
                 if (myTokens.size() == env.config.featureSize && !terminate) { // a "set" was created
-                    synchronized (this) { // we synch here because we dont want the dealer to notify us before we are
-                                          // sleeping
-                        dealer.IHaveASet(this);
-                        while (flag == -1) // the dealer has not finishing checking the set
-                            try {
-                                wait();
-                            } catch (InterruptedException x) {
-                                System.out.println(Thread.currentThread().getName()
-                                        + " need to be terminated. Stops waiting for the queue to have room");
-                                break;
-                            }
-                        if (flag == 0) { // the set was wrong
-                            penalty();
-                        } else if (flag == 1) { // the set was right
-                            point();
-                        }
-                        flag = -1;
-                    }
+                    claimSet();
                 }
 
             }
@@ -151,40 +167,143 @@ public class Player implements Runnable {
                 System.out.println("The AI thread of player " + id + "has not joined succsefuly");
             }
         }
+        if (inbox.dropped() > 0)
+            env.logger.info("player " + id + " dropped " + inbox.dropped() + " key presses (inbox full).");
         env.logger.info("Thread " + Thread.currentThread().getName() + " terminated.");
     }
 
+    /**
+     * Asks the dealer to check the set of the player's tokens, and waits for the verdict.
+     */
+    private void claimSet() {
+        synchronized (this) { // we synch here because we dont want the dealer to notify us before we are
+                              // sleeping
+            dealer.IHaveASet(this);
+            while (flag == -1) // the dealer has not finishing checking the set
+                try {
+                    wait();
+                } catch (InterruptedException x) {
+                    System.out.println(Thread.currentThread().getName()
+                            + " need to be terminated. Stops waiting for the queue to have room");
+                    break;
+                }
+            if (flag == 0) { // the set was wrong
+                penalty();
+            } else if (flag == 1) { // the set was right
+                point();
+            }
+            flag = -1;
+        }
+    }
+
+    /**
+     * Takes the next key press to handle, waiting until there is one.
+     * A human player takes it from the inbox filled by the input thread, a computer player from myQueue.
+     *
+     * @return - the slot of the key press, or -1 if the thread was interrupted (or terminated) with nothing to handle.
+     */
+    private int nextSlot() {
+        if (human) {
+            Integer slot;
+            while ((slot = inbox.poll()) == null) {
+                if (terminate || Thread.interrupted())
+                    return -1;
+                LockSupport.park(this); // unparked by keyPressed (or interrupted by the dealer)
+            }
+            return slot;
+        }
+        synchronized (myQueue) {
+            while (myQueue.isEmpty()) { // removing the head of the queue in thread safe, cancle the buisy waiting
+                try {
+                    myQueue.notify(); // prevent dead lock
+                    myQueue.wait();
+                } catch (InterruptedException ex) {
+                    System.out.println(Thread.currentThread().getName()
+                            + " need to be terminated. Stops waiting for the queue to have room");
+                    return -1;
+                }
+            }
+            int slot = myQueue.poll();
+            myQueue.notify(); // wake up the AI thread and tell him there is space in the queue now
+            return slot;
+        }
+    }
+
     /**
      * Creates an additional thread for an AI (computer) player. The main loop of
-     * this thread repeatedly generates
-     * key presses. If the queue of key presses is full, the thread waits until it
-     * is not full.
+     * this thread asks the strategy for the next key presses and generates them
+     * at the pace of its token bucket (config.computerPressesPerSecond,
+     * config.computerBurstSize). If the queue of key presses is full, the thread
+     * waits until it is not full.
      */
     private void createArtificialIntelligence() {
-        // note: this is a very very smart AI (!)
         aiThread = new Thread(() -> {
             env.logger.info("thread " + Thread.currentThread().getName() + " starting.");
-            Random rnd = new Random();
+            TokenBucket pacing = new TokenBucket(env.config.computerPressesPerSecond, env.config.computerBurstSize);
             while (!terminate) {
-                int slot = rnd.nextInt(12);
-                if (!table.canChangeTable) {
-                    synchronized (table.canChangeLock) {
-                        try { // preventing busy wait while removingAllcardsFromTable
-                            table.canChangeLock.wait();
-                            table.canChangeLock.notify(); // chain reaction
-                        } catch (Exception ex) {
-                            System.out.println(Thread.currentThread().getName()
-                                    + " need to be terminated. Stops waiting for can change lock");
-                        }
+                try { // preventing busy wait while the dealer is replacing cards
+                    table.gate.await();
+                } catch (InterruptedException ex) {
+                    System.out.println(Thread.currentThread().getName()
+                            + " need to be terminated. Stops waiting for the table gate");
+                    continue;
+                }
+                int[] slots = strategy.nextPresses(table, this);
+                if (slots.length == 0) { // nothing to press on this board, look again a bit later
+                    aiSleep(Math.max(env.config.computerThinkMillis, AI_IDLE_MILLIS));
+                    continue;
+                }
+                if (slots.length > 1) // a whole set was found, take the time to "think" about it
+                    aiSleep(env.config.computerThinkMillis);
+                for (int slot : slots) {
+                    try {
+                        pacing.acquire();
+                    } catch (InterruptedException ex) {
+                        System.out.println(Thread.currentThread().getName()
+                                + " need to be terminated. Stops waiting for the pacing");
                     }
+                    if (terminate)
+                        break;
+                    keyPressed(slot);
                 }
-                keyPressed(slot);
+                awaitQueueDrained(); // so the next decision is made on the tokens we actually have
             }
+            env.logger.info(String.format("thread %s pressed %d keys (%.1f presses/sec, target %s).",
+                    Thread.currentThread().getName(), pacing.acquired(), pacing.measuredRate(),
+                    pacing.rate() > 0 ? String.valueOf(pacing.rate()) : "unlimited"));
             env.logger.info("thread " + Thread.currentThread().getName() + " terminated.");
         }, "computer-" + id);
+        table.profileThread(aiThread);
         aiThread.start();
     }
 
+    private void aiSleep(long millis) {
+        if (millis <= 0)
+            return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ex) {
+            System.out.println(Thread.currentThread().getName() + " need to be terminated. Stops sleeping");
+        }
+    }
+
+    /**
+     * Waits until the player thread handled all the key presses in the queue.
+     */
+    private void awaitQueueDrained() {
+        synchronized (myQueue) {
+            while (!myQueue.isEmpty() && !terminate) {
+                try {
+                    myQueue.wait();
+                } catch (InterruptedException ex) {
+                    System.out.println(Thread.currentThread().getName()
+                            + " need to be terminated. Stops waiting for the queue to drain");
+                    break;
+                }
+            }
+        }
+    }
+
     /**
      * Called when the game should be terminated due to an external event.
      */
@@ -198,23 +317,32 @@ public class Player implements Runnable {
      * @param slot - the slot corresponding to the key pressed.
      */
     public void keyPressed(int slot) {
+        if (human) { // called from the input thread, which must never wait for this player
+            if (table.gate.isOpen() && !terminate) {
+                env.keyLatency.pressed(id, slot); // before the offer, so the player thread cannot take it first
+                if (!inbox.offer(slot)) // dropped (and counted) if the player is not keeping up, e.g. while frozen
+                    env.keyLatency.dropped(id, slot);
+                LockSupport.unpark(playerThread);
+            }
+            return;
+        }
         synchronized (myQueue) { // to cancle the buisy wait
-            if (table.canChangeTable && table.slotToCard(slot) != null) { // only if the table can get its keypress and
+            if (table.gate.isOpen() && table.slotToCard(slot) != null) { // only if the table can get its keypress and
                                                                           // not in the middle of replacing card, and
                                                                           // the slot has a card on
-                if (!human) {
-                    while (myQueue.size() == env.config.featureSize) {
-                        try {
-                            myQueue.wait();
-                        } catch (InterruptedException ex1) {
-                            System.out.println(Thread.currentThread().getName()
-                                    + " need to be terminated. Stops waiting for the queue to have room");
-                            break;
-                        }
+                while (myQueue.size() == env.config.featureSize) {
+                    try {
+                        myQueue.wait();
+                    } catch (InterruptedException ex1) {
+                        System.out.println(Thread.currentThread().getName()
+                                + " need to be terminated. Stops waiting for the queue to have room");
+                        break;
                     }
                 }
-                if (!terminate)
+                if (!terminate && myQueue.size() < env.config.featureSize) {
                     myQueue.add(slot);
+                    env.keyLatency.pressed(id, slot);
+                }
                 myQueue.notify();
             }
         }
@@ -232,11 +360,8 @@ public class Player implements Runnable {
         score++;
         env.ui.setScore(id, score);
         long time = env.config.pointFreezeMillis;
-        freez(time);
-        synchronized (myQueue) {
-            myQueue.clear();
-            myQueue.notify();
-        }
+        freez(time, false);
+        clearPresses();
     }
 
     /**
@@ -245,14 +370,27 @@ public class Player implements Runnable {
      */
     public synchronized void penalty() {
         long time = env.config.penaltyFreezeMillis;
-        freez(time);
+        freez(time, true);
+        clearPresses();
+    }
+
+    /**
+     * Drops the key presses that were not handled yet (both the inbox and myQueue).
+     */
+    protected void clearPresses() {
+        inbox.clear();
         synchronized (myQueue) {
             myQueue.clear();
-            myQueue.notify();
+            myQueue.notifyAll(); // the AI may be waiting for room or for the queue to drain
         }
     }
 
-    private void freez(long time) {
+    private void freez(long time, boolean penalty) {
+        GameEvents.Freeze event = new GameEvents.Freeze();
+        event.begin();
+        long start = System.currentTimeMillis();
+        frozenPenalty = penalty;
+        frozenUntil = start + time;
         env.ui.setFreeze(id, time);
         if(time % 1000 != 0)
         {
@@ -272,9 +410,42 @@ public class Player implements Runnable {
             time = time - 1000;
         }
         env.ui.setFreeze(id, 0);
+        if (!terminate) // a freeze cut short by the end of the game is still owed (see Dealer's checkpoint)
+            frozenUntil = 0;
+        table.playerFrozen(id, System.currentTimeMillis() - start, penalty);
+        if (event.shouldCommit()) {
+            event.player = id;
+            event.penalty = penalty;
+            event.commit();
+        }
 
     }
 
+    /**
+     * Restores the player of a resumed game (before its thread starts).
+     *
+     * @param score        - the player's score.
+     * @param freezeMillis - the rest of its freeze (0 if it was not frozen).
+     * @param penalty      - true iff the freeze is a penalty.
+     * @param claim        - true iff the player's tokens are a set to claim when its thread starts.
+     */
+    protected void restore(int score, long freezeMillis, boolean penalty, boolean claim) {
+        this.score = score;
+        env.ui.setScore(id, score);
+        resumedFreezeMillis = freezeMillis;
+        resumedFreezePenalty = penalty;
+        resumedClaim = claim;
+    }
+
+    /**
+     * Sets the score back to 0 for the next game. Synchronized like point and penalty, so it waits for a freeze that
+     * is still running to end.
+     */
+    protected synchronized void reset() {
+        score = 0;
+        env.ui.setScore(id, score);
+    }
+
     // synchronized becouse "score" is not final
     public synchronized int score() {
         return score;
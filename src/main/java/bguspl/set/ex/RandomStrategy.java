@@ -0,0 +1,26 @@
+package bguspl.set.ex;
+import bguspl.set.Env;
+import java.util.SplittableRandom;
+
+/**
+ * The original computer player strategy: presses a random slot each time.
+ */
+public class RandomStrategy implements ComputerStrategy {
+
+    private final Env env;
+    private final SplittableRandom rnd;
+
+    /**
+     * @param env - the game environment objects.
+     * @param rnd - the player's random stream (see GameRandom).
+     */
+    public RandomStrategy(Env env, SplittableRandom rnd) {
+        this.env = env;
+        this.rnd = rnd;
+    }
+
+    @Override
+    public int[] nextPresses(Table table, Player player) {
+        return new int[] { rnd.nextInt(env.config.tableSize) };
+    }
+}
@@ -0,0 +1,109 @@
+package bguspl.set.ex;
+import bguspl.set.Env;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the legal sets of the cards currently on the table, so that all the computer players share one
+ * findSets computation per board. The cache is keyed by the table's board version, which changes on every
+ * placeCard/removeCard, so a stale entry is never returned.
+ */
+public class SolverCache {
+
+    /**
+     * The sets of one board version.
+     */
+    public static class Entry {
+
+        /**
+         * The board version this entry was computed for.
+         */
+        public final long version;
+
+        /**
+         * The legal sets on the board, each one given by the slots of its cards (must not be modified).
+         */
+        public final int[][] sets;
+
+        private Entry(long version, int[][] sets) {
+            this.version = version;
+            this.sets = sets;
+        }
+    }
+
+    private final Env env;
+    private final Table table;
+    private volatile Entry entry = new Entry(-1, new int[0][]);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public SolverCache(Env env, Table table) {
+        this.env = env;
+        this.table = table;
+    }
+
+    /**
+     * Returns the sets on the current board. Only the first caller for a board version computes them, the other
+     * callers wait for it and reuse the result.
+     *
+     * @return - the cache entry of the current board version.
+     */
+    public Entry current() {
+        Entry current = entry;
+        if (current.version == table.version()) {
+            hits.incrementAndGet();
+            return current;
+        }
+        synchronized (this) {
+            current = entry;
+            if (current.version == table.version()) { // somebody computed it while we were waiting
+                hits.incrementAndGet();
+                return current;
+            }
+            misses.incrementAndGet();
+            entry = current = compute();
+            return current;
+        }
+    }
+
+    private Entry compute() {
+        long version;
+        Integer[] board;
+        table.stcRWLock.readLock().lock(); // the board and its version must match
+        version = table.version();
+        board = table.slotsSnapshot();
+        table.stcRWLock.readLock().unlock();
+
+        List<Integer> cards = new ArrayList<>(board.length);
+        for (Integer card : board)
+            if (card != null)
+                cards.add(card);
+        List<int[]> found = env.util.findSets(cards, Integer.MAX_VALUE);
+        int[][] sets = new int[found.size()][];
+        int i = 0;
+        for (int[] set : found) {
+            sets[i] = new int[set.length];
+            for (int j = 0; j < set.length; j++)
+                sets[i][j] = slotOf(board, set[j]);
+            i++;
+        }
+        return new Entry(version, sets);
+    }
+
+    private static int slotOf(Integer[] board, int card) {
+        for (int slot = 0; slot < board.length; slot++)
+            if (board[slot] != null && board[slot] == card)
+                return slot;
+        return -1;
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+}
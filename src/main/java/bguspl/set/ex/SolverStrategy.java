@@ -0,0 +1,84 @@
+package bguspl.set.ex;
+import bguspl.set.Env;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * A computer player strategy that looks for real sets on the table (through the table's shared solver cache)
+ * and presses their slots.
+ * With probability config.computerErrorRate one of the slots is swapped for another card, so the claim is wrong.
+ */
+public class SolverStrategy implements ComputerStrategy {
+
+    private static final int[] NO_PRESSES = new int[0];
+
+    private final Env env;
+    private final SplittableRandom rnd;
+
+    /**
+     * @param env - the game environment objects.
+     * @param rnd - the player's random stream (see GameRandom).
+     */
+    public SolverStrategy(Env env, SplittableRandom rnd) {
+        this.env = env;
+        this.rnd = rnd;
+    }
+
+    @Override
+    public int[] nextPresses(Table table, Player player) {
+        SolverCache.Entry board = table.solverCache.current();
+        if (board.sets.length == 0)
+            return NO_PRESSES;
+
+        int[] target = Arrays.copyOf(board.sets[rnd.nextInt(board.sets.length)], env.config.featureSize);
+        if (rnd.nextDouble() < env.config.computerErrorRate)
+            makeMistake(table.slotsSnapshot(), target);
+
+        return pressesFor(player, target);
+    }
+
+    /**
+     * Replaces one of the target slots with another occupied slot that is not part of the target.
+     */
+    private void makeMistake(Integer[] board, int[] target) {
+        List<Integer> others = new ArrayList<>();
+        for (int slot = 0; slot < board.length; slot++)
+            if (board[slot] != null && !contains(target, slot))
+                others.add(slot);
+        if (!others.isEmpty())
+            target[rnd.nextInt(target.length)] = others.get(rnd.nextInt(others.size()));
+    }
+
+    /**
+     * The presses needed to go from the player's current tokens to tokens on exactly the target slots:
+     * first remove the tokens that are not part of the target, then place the missing ones.
+     */
+    private int[] pressesFor(Player player, int[] target) {
+        Integer[] tokens = player.vectorToArray(player.myTokens);
+        int[] presses = new int[tokens.length + target.length];
+        int count = 0;
+        for (int slot : tokens)
+            if (!contains(target, slot))
+                presses[count++] = slot;
+        for (int slot : target)
+            if (!contains(tokens, slot))
+                presses[count++] = slot;
+        return Arrays.copyOf(presses, count);
+    }
+
+    private static boolean contains(int[] slots, int slot) {
+        for (int s : slots)
+            if (s == slot)
+                return true;
+        return false;
+    }
+
+    private static boolean contains(Integer[] slots, int slot) {
+        for (Integer s : slots)
+            if (s == slot)
+                return true;
+        return false;
+    }
+}
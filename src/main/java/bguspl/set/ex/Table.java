@@ -1,5 +1,7 @@
 package bguspl.set.ex;
 import bguspl.set.Env;
+import bguspl.set.GameEvents;
+import java.nio.file.Paths;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
@@ -15,10 +17,10 @@ import java.util.stream.Collectors;
  */
 public class Table {
     
-    protected volatile boolean canChangeTable = false; // doesnt need to be atomic or sinchronized becouse only the
-                                                       // dealer can change this argument, but we want that every time
-                                                       // it changes everyone will know imidiatly
-    protected Object canChangeLock = new Object();
+    /**
+     * Open iff the players may change the table (only the dealer opens and closes it).
+     */
+    protected final TableGate gate = new TableGate();
     protected Vector<Integer> emptySlots;
     /**
      * The game environment object.
@@ -32,6 +34,31 @@ public class Table {
 
     protected final ReadWriteLock stcRWLock;
 
+    /**
+     * The board version, changes every time a card is placed or removed (under the stcRWLock write lock).
+     */
+    private volatile long version;
+
+    /**
+     * The sets of the current board, shared by all the computer players.
+     */
+    protected final SolverCache solverCache;
+
+    /**
+     * The game's metrics (exposed over JMX by the dealer).
+     */
+    protected final GameMetrics metrics;
+
+    /**
+     * Measures the contention on the game's locks (when ProfileLocks is on).
+     */
+    protected final LockProfiler lockProfiler;
+
+    /**
+     * Records the game's events for replaying it (when JournalFile is set).
+     */
+    protected final GameJournal journal;
+
     /**
      * Mapping between a card and the slot it is in (null if none).
      */
@@ -54,7 +81,15 @@ public class Table {
         for (int i = 0; i < 12; i++) {
             emptySlots.add(i);
         }
-        stcRWLock = new ReentrantReadWriteLock();
+        lockProfiler = new LockProfiler(env.config.profileLocks, env.config.lockSampleMillis);
+        stcRWLock = lockProfiler.wrap("Table.stcRWLock", new ReentrantReadWriteLock());
+        solverCache = new SolverCache(env, this);
+        metrics = new GameMetrics(env.config.players);
+        journal = env.config.journalFile.isEmpty() ? GameJournal.disabled()
+                : GameJournal.open(Paths.get(env.config.journalFile), env.config, env.config.seed, env.logger);
+        lockProfiler.nameMonitor("Table", this);
+        lockProfiler.nameMonitor("Table.gate", gate);
+        lockProfiler.nameMonitor("Table.solverCache", solverCache);
     }
 
     /**
@@ -112,19 +147,47 @@ public class Table {
      *       the display, and sombody else removed that card.
      */
     public void placeCard(int card, int slot) {
+        GameEvents.CardPlaced event = new GameEvents.CardPlaced();
+        event.begin();
         try {
             Thread.sleep(env.config.tableDelayMillis);
         } catch (InterruptedException ignored) {
         }
-        cardToSlot[card] = slot;
+        placeCardNow(card, slot, event);
+    }
 
-        stcRWLock.writeLock().lock();
+    /**
+     * Places a whole board at once, with no table delay (resuming a game).
+     *
+     * @param board - the card per slot (null for an empty slot).
+     */
+    public void placeCards(Integer[] board) {
+        for (int slot = 0; slot < board.length; slot++) {
+            if (board[slot] != null) {
+                GameEvents.CardPlaced event = new GameEvents.CardPlaced();
+                event.begin();
+                placeCardNow(board[slot], slot, event);
+            }
+        }
+    }
+
+    private void placeCardNow(int card, int slot, GameEvents.CardPlaced event) {
+        stcRWLock.writeLock().lock(); // both mappings change together, so readers never see only one of them
+        cardToSlot[card] = slot;
         slotToCard[slot] = card;
+        version++;
+        journal.cardPlaced(slot, card);
         stcRWLock.writeLock().unlock();
 
         emptySlots.remove(emptySlots.indexOf(slot)); // doesnt need to be synch because only the dealer is changing the
                                                      // list
         env.ui.placeCard(card, slot);
+        metrics.cardPlaced();
+        if (event.shouldCommit()) {
+            event.slot = slot;
+            event.card = card;
+            event.commit();
+        }
     }
 
     /**
@@ -136,6 +199,8 @@ public class Table {
      *             tokens lists of all the player (129)
      */
     public synchronized void removeCard(int slot, Player[] players) {
+        GameEvents.CardRemoved event = new GameEvents.CardRemoved();
+        event.begin();
         try {
             Thread.sleep(env.config.tableDelayMillis);
         } catch (InterruptedException ignored) {
@@ -143,14 +208,23 @@ public class Table {
         for (Player p : players) {
             removeToken(p, slot);
         }
-        cardToSlot[slotToCard[slot]] = null;
+        int card = slotToCard[slot];
 
         stcRWLock.writeLock().lock();
+        cardToSlot[card] = null;
         slotToCard[slot] = null;
+        version++;
+        journal.cardRemoved(slot, card);
         stcRWLock.writeLock().unlock();
 
         emptySlots.add(slot);
         env.ui.removeCard(slot);
+        metrics.cardRemoved();
+        if (event.shouldCommit()) {
+            event.slot = slot;
+            event.card = card;
+            event.commit();
+        }
     }
 
     /**
@@ -162,11 +236,13 @@ public class Table {
      */
     public void placeToken(Player player, int slot) {
         stcRWLock.readLock().lock();
-        if (slotToCard[slot] != null && canChangeTable) {
+        if (slotToCard[slot] != null && gate.isOpen()) {
             synchronized (player.myTokens) {
                 player.myTokens.add(slot);
+                journal.tokenPlaced(player.id, slot);
             }
             env.ui.placeToken(player.id, slot);
+            env.keyLatency.applied(player.id, slot);
         }
         stcRWLock.readLock().unlock();
     }
@@ -182,13 +258,53 @@ public class Table {
         synchronized (player.myTokens) {
             if (player.myTokens.contains(slot)) {
                 player.myTokens.remove(player.myTokens.indexOf(slot));
+                journal.tokenRemoved(player.id, slot);
                 env.ui.removeToken(player.id, slot);
+                env.keyLatency.applied(player.id, slot);
                 return true;
             }
             return false;
         }
     }
 
+    /**
+     * Copies the current placement of the cards on the table.
+     *
+     * @return - a copy of slotToCard, taken while no card is being placed or removed.
+     */
+    public Integer[] slotsSnapshot() {
+        stcRWLock.readLock().lock();
+        Integer[] snapshot = Arrays.copyOf(slotToCard, slotToCard.length);
+        stcRWLock.readLock().unlock();
+        return snapshot;
+    }
+
+    /**
+     * @return - the current board version.
+     */
+    public long version() {
+        return version;
+    }
+
+    /**
+     * Has the lock profiler sample a game thread (when profiling is on).
+     */
+    public void profileThread(Thread thread) {
+        lockProfiler.profileThread(thread);
+    }
+
+    /**
+     * Records that a player was frozen (for the game metrics and the journal).
+     *
+     * @param player  - the player id.
+     * @param millis  - for how long.
+     * @param penalty - true for a wrong set, false after a point.
+     */
+    public void playerFrozen(int player, long millis, boolean penalty) {
+        metrics.frozen(player, millis, penalty);
+        journal.freeze(player, millis, penalty);
+    }
+
     public Integer slotToCard(int slot) {
         stcRWLock.readLock().lock();
         Integer card = slotToCard[slot];
@@ -0,0 +1,85 @@
+package bguspl.set.ex;
+
+/**
+ * An open/closed gate that tells whether the players may change the table (place tokens, press keys).
+ * The dealer closes it while cards are being removed and placed, and opens it when the table is ready again.
+ * Opening releases all the waiting threads at once, and since the state and the waiting are guarded by the same
+ * monitor, a thread cannot miss the opening between checking the state and starting to wait.
+ */
+public class TableGate {
+
+    /**
+     * The gate's state. Volatile so isOpen can be checked without taking the monitor.
+     */
+    private volatile boolean open = false;
+
+    /**
+     * Statistics of the periods the gate was closed (guarded by this).
+     */
+    private long closedSince = System.nanoTime();
+    private long closures;
+    private long totalClosedNanos;
+    private long maxClosedNanos;
+
+    /**
+     * Opens the gate and releases all the threads waiting for it.
+     */
+    public synchronized void open() {
+        if (open)
+            return;
+        long closedNanos = System.nanoTime() - closedSince;
+        totalClosedNanos += closedNanos;
+        maxClosedNanos = Math.max(maxClosedNanos, closedNanos);
+        closures++;
+        open = true;
+        notifyAll();
+    }
+
+    /**
+     * Closes the gate. Threads calling await will wait until it is opened again.
+     */
+    public synchronized void close() {
+        if (!open)
+            return;
+        open = false;
+        closedSince = System.nanoTime();
+    }
+
+    /**
+     * @return - true iff the gate is currently open.
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+    /**
+     * Waits until the gate is open (returns immediately if it already is).
+     *
+     * @throws InterruptedException - if the thread was interrupted while waiting.
+     */
+    public synchronized void await() throws InterruptedException {
+        while (!open)
+            wait();
+    }
+
+    /**
+     * @return - the number of times the gate was closed and opened again.
+     */
+    public synchronized long closures() {
+        return closures;
+    }
+
+    /**
+     * @return - the total time (in milliseconds) the gate was closed, not counting a period that is still going on.
+     */
+    public synchronized double totalClosedMillis() {
+        return totalClosedNanos / 1_000_000.0;
+    }
+
+    /**
+     * @return - the longest time (in milliseconds) the gate was closed.
+     */
+    public synchronized double maxClosedMillis() {
+        return maxClosedNanos / 1_000_000.0;
+    }
+}
@@ -0,0 +1,81 @@
+package bguspl.set.ex;
+
+/**
+ * A token bucket used to pace the key presses of a computer player.
+ * Tokens are added at a fixed rate up to the burst size, and every press takes one token.
+ * A rate of 0 or less means unlimited (acquire never waits).
+ * Not thread safe: each bucket is used by a single AI thread.
+ */
+public class TokenBucket {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
+    private final double ratePerSecond;
+    private final double burst;
+    private double tokens;
+    private long lastRefill;
+
+    /**
+     * Statistics for the measured rate.
+     */
+    private final long created;
+    private long acquired;
+
+    /**
+     * @param ratePerSecond - the number of tokens added each second (0 or less means unlimited).
+     * @param burst         - the maximum number of tokens that can be saved up (at least 1).
+     */
+    public TokenBucket(double ratePerSecond, int burst) {
+        this.ratePerSecond = ratePerSecond;
+        this.burst = Math.max(1, burst);
+        this.tokens = this.burst; // start full, so the first burst is not delayed
+        this.created = this.lastRefill = System.nanoTime();
+    }
+
+    /**
+     * Takes one token, waiting until one is available.
+     *
+     * @throws InterruptedException - if the thread was interrupted while waiting (no token is taken).
+     */
+    public void acquire() throws InterruptedException {
+        if (ratePerSecond > 0) {
+            refill();
+            while (tokens < 1) {
+                long waitNanos = (long) Math.ceil((1 - tokens) * NANOS_PER_SECOND / ratePerSecond);
+                Thread.sleep(waitNanos / NANOS_PER_MILLI, (int) (waitNanos % NANOS_PER_MILLI));
+                refill();
+            }
+            tokens -= 1;
+        }
+        acquired++;
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * ratePerSecond / NANOS_PER_SECOND);
+        lastRefill = now;
+    }
+
+    /**
+     * @return - the number of tokens taken so far.
+     */
+    public long acquired() {
+        return acquired;
+    }
+
+    /**
+     * @return - the actual number of tokens taken per second since the bucket was created.
+     */
+    public double measuredRate() {
+        long elapsed = System.nanoTime() - created;
+        return elapsed <= 0 ? 0 : acquired * (double) NANOS_PER_SECOND / elapsed;
+    }
+
+    /**
+     * @return - the configured rate (0 or less means unlimited).
+     */
+    public double rate() {
+        return ratePerSecond;
+    }
+}
@@ -0,0 +1,64 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.SimpleFormatter;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AsyncLogHandlerTest {
+
+    @Test
+    void publish_AllRecordsAreWrittenInOrder(@TempDir File dir) throws IOException, InterruptedException {
+        File log = new File(dir, "test.log");
+        AsyncLogHandler handler = new AsyncLogHandler(log.getPath(), 1 << 16);
+        handler.setFormatter(new SimpleFormatter() {
+            @Override
+            public String format(LogRecord lr) {
+                return lr.getMessage() + "\n";
+            }
+        });
+        int threads = 4, records = 5000;
+        Thread[] loggers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            loggers[t] = new Thread(() -> {
+                for (int i = 0; i < records; i++)
+                    handler.publish(new LogRecord(Level.INFO, id + " " + i));
+            });
+            loggers[t].start();
+        }
+        for (Thread t : loggers)
+            t.join();
+        handler.close();
+
+        List<String> lines = Files.readAllLines(log.toPath());
+        assertEquals(threads * records, lines.size());
+        int[] next = new int[threads];
+        for (String line : lines) {
+            String[] parts = line.split(" ");
+            int id = Integer.parseInt(parts[0]);
+            assertEquals(next[id]++, Integer.parseInt(parts[1])); // each thread's records keep their order
+        }
+    }
+
+    @Test
+    void publish_DropsWhenFull(@TempDir File dir) throws IOException {
+        File log = new File(dir, "test.log");
+        AsyncLogHandler handler = new AsyncLogHandler(log.getPath(), 4);
+        for (int i = 0; i < 100_000; i++)
+            handler.publish(new LogRecord(Level.INFO, "record " + i));
+        handler.close();
+
+        List<String> lines = Files.readAllLines(log.toPath());
+        if (handler.dropped() > 0)
+            assertTrue(lines.stream().anyMatch(line -> line.contains("records dropped")));
+        assertEquals(100_000 - handler.dropped(), lines.stream().filter(line -> line.startsWith("record")).count());
+    }
+}
@@ -0,0 +1,52 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Properties;
+import java.util.logging.Logger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class CardImagesTest {
+
+    Logger logger = Logger.getLogger("CardImagesTest");
+
+    private Config config(String atlas) {
+        Properties properties = new Properties();
+        properties.put("PreloadCardImages", "false");
+        properties.put("CardAtlas", atlas);
+        return new Config(logger, properties);
+    }
+
+    @Test
+    void card_DecodesOnlyWhatIsUsed() {
+        CardImages images = new CardImages(logger, config(""));
+        assertEquals(1, images.decoded()); // just the empty card
+
+        BufferedImage card = (BufferedImage) images.card(40);
+        assertSame(card, images.card(40));
+        assertEquals(2, images.decoded());
+    }
+
+    @Test
+    void card_FromAtlasMatchesThePng(@TempDir File dir) throws IOException {
+        String atlas = new File(dir, "atlas.png").getPath();
+        CardImages.main(new String[] { atlas, "" });
+
+        CardImages fromAtlas = new CardImages(logger, config(atlas));
+        CardImages fromPng = new CardImages(logger, config(""));
+
+        assertEquals(1, fromAtlas.decoded());
+        for (int card : new int[] { 0, 40, 80 }) {
+            BufferedImage expected = (BufferedImage) fromPng.card(card);
+            BufferedImage actual = (BufferedImage) fromAtlas.card(card);
+            assertEquals(expected.getWidth(), actual.getWidth());
+            assertEquals(expected.getHeight(), actual.getHeight());
+            int x = expected.getWidth() / 2, y = expected.getHeight() / 2;
+            assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import java.awt.image.BufferedImage;
+import java.util.Properties;
+import java.util.logging.Logger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CardRendererTest {
+
+    Logger logger = Logger.getLogger("CardRendererTest");
+
+    private Config bigDeck() {
+        Properties properties = new Properties();
+        properties.put("FeatureCount", "5");
+        properties.put("FeatureSize", "3");
+        properties.put("CardImageCacheSize", "16");
+        return new Config(logger, properties);
+    }
+
+    private static boolean samePixels(BufferedImage a, BufferedImage b) {
+        for (int x = 0; x < a.getWidth(); x++)
+            for (int y = 0; y < a.getHeight(); y++)
+                if (a.getRGB(x, y) != b.getRGB(x, y))
+                    return false;
+        return true;
+    }
+
+    @Test
+    void card_IsCellSizedAndCached() {
+        Config config = bigDeck();
+        CardRenderer renderer = new CardRenderer(config);
+
+        BufferedImage card = renderer.card(100);
+
+        assertEquals(config.cellWidth, card.getWidth());
+        assertEquals(config.cellHeight, card.getHeight());
+        assertSame(card, renderer.card(100));
+        assertEquals(1, renderer.rendered());
+    }
+
+    @Test
+    void card_CacheIsBounded() {
+        Config config = bigDeck();
+        CardRenderer renderer = new CardRenderer(config);
+
+        BufferedImage first = renderer.card(0);
+        for (int card = 1; card < config.deckSize; card++)
+            renderer.card(card);
+
+        assertEquals(16, renderer.cached());
+        assertEquals(config.deckSize, renderer.rendered());
+        assertNotSame(first, renderer.card(0)); // evicted, drawn again
+        assertEquals(config.deckSize + 1, renderer.rendered());
+    }
+
+    @Test
+    void card_EveryFeatureChangesTheImage() {
+        Config config = bigDeck();
+        CardRenderer renderer = new CardRenderer(config);
+        BufferedImage base = renderer.card(0);
+        for (int feature = 0, card = 1; feature < config.featureCount; feature++, card *= config.featureSize)
+            assertFalse(samePixels(base, renderer.card(card)), "feature " + (config.featureCount - 1 - feature));
+    }
+
+    @Test
+    void card_EveryValueOfEveryFeatureIsDrawnDifferently() {
+        Properties properties = new Properties();
+        properties.put("FeatureCount", "5");
+        properties.put("FeatureSize", "9"); // past the basic shapes, colors and stripe directions
+        properties.put("CardImageCacheSize", "64");
+        Config config = new Config(logger, properties);
+        CardRenderer renderer = new CardRenderer(config);
+        for (int feature = 0, unit = 1; feature < config.featureCount; feature++, unit *= config.featureSize) {
+            BufferedImage[] images = new BufferedImage[config.featureSize];
+            for (int value = 0; value < config.featureSize; value++)
+                images[value] = renderer.card(value * unit);
+            for (int a = 0; a < images.length; a++)
+                for (int b = a + 1; b < images.length; b++)
+                    assertFalse(samePixels(images[a], images[b]),
+                            "feature " + (config.featureCount - 1 - feature) + ", values " + a + " and " + b);
+        }
+    }
+
+    @Test
+    void cardImages_DrawsDecksWithoutImages() {
+        assertTrue(new CardImages(logger, bigDeck()).procedural());
+        Properties properties = new Properties();
+        properties.put("PreloadCardImages", "false");
+        assertFalse(new CardImages(logger, new Config(logger, properties)).procedural());
+    }
+}
@@ -0,0 +1,61 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.SplittableRandom;
+import java.util.logging.Logger;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class GameRandomTest {
+
+    @Test
+    void sameSeed_GivesTheSameStreams() {
+        GameRandom first = new GameRandom(7, 3);
+        GameRandom second = new GameRandom(7, 3);
+
+        assertArrayEquals(draw(first.deck()), draw(second.deck()));
+        assertArrayEquals(draw(first.slots()), draw(second.slots()));
+        for (int player = 0; player < 3; player++)
+            assertArrayEquals(draw(first.computer(player)), draw(second.computer(player)));
+    }
+
+    @Test
+    void streams_DoNotDependOnEachOther() {
+        GameRandom first = new GameRandom(7, 2);
+        GameRandom second = new GameRandom(7, 2);
+        draw(first.computer(0)); // one player draws a lot more than in the other run
+
+        assertArrayEquals(draw(first.deck()), draw(second.deck()));
+        assertArrayEquals(draw(first.computer(1)), draw(second.computer(1)));
+        assertFalse(Arrays.equals(draw(first.deck()), draw(first.slots())));
+    }
+
+    @Test
+    void otherSeed_GivesOtherStreams() {
+        assertFalse(Arrays.equals(draw(new GameRandom(7, 1).deck()), draw(new GameRandom(8, 1).deck())));
+    }
+
+    @Test
+    void seed_IsReadFromTheConfig() {
+        Logger logger = Logger.getAnonymousLogger();
+        Properties properties = new Properties();
+        properties.put("Seed", "-12345");
+        assertEquals(-12345, new GameRandom(new Config(logger, properties)).seed());
+    }
+
+    @Test
+    void env_SharesItsRandomWithTheUtil() {
+        Logger logger = Logger.getAnonymousLogger();
+        Config config = new Config(logger, new Properties());
+        UtilImpl util = new UtilImpl(config);
+        assertSame(util.random(), new Env(logger, config, null, util).random);
+    }
+
+    private static int[] draw(SplittableRandom random) {
+        return random.ints(32, 0, 81).toArray();
+    }
+}
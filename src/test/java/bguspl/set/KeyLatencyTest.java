@@ -0,0 +1,98 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.util.Properties;
+import java.util.logging.Logger;
+import javax.swing.SwingUtilities;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyLatencyTest {
+
+    @BeforeAll
+    static void headless() {
+        System.setProperty("java.awt.headless", "true");
+    }
+
+    @Test
+    void stages_AreRecordedInOrder() throws InterruptedException {
+        KeyLatency latency = new KeyLatency(2, 12);
+
+        latency.pressed(1, 5);
+        Thread.sleep(5);
+        latency.taken(1, 5);
+        latency.applied(1, 5);
+        latency.shown(1, 5);
+        latency.painted(5);
+
+        assertArrayEquals(new long[]{0, 1}, latency.getPresses());
+        assertTrue(latency.getQueueP50Millis()[1] >= 4);
+        assertTrue(latency.getTotalP50Millis()[1] >= latency.getQueueP50Millis()[1]);
+        assertEquals(1, latency.report().size());
+    }
+
+    @Test
+    void stages_WithoutAPress_AreIgnored() {
+        KeyLatency latency = new KeyLatency(2, 12);
+
+        latency.taken(0, 3); // e.g. a press from before the tracing started
+        latency.applied(0, 3);
+        latency.shown(0, 3);
+        latency.painted(3);
+        latency.pressed(5, 3); // no such player
+
+        assertArrayEquals(new long[]{0, 0}, latency.getPresses());
+        assertArrayEquals(new double[]{0, 0}, latency.getTotalP99Millis());
+        assertTrue(latency.report().isEmpty());
+    }
+
+    @Test
+    void droppedPress_IsNotTimed() {
+        KeyLatency latency = new KeyLatency(2, 12);
+
+        latency.pressed(0, 3);
+        latency.dropped(0, 3);
+        latency.taken(0, 3); // a later press of the slot, timed from its own press only
+
+        assertArrayEquals(new long[]{0, 0}, latency.getPresses());
+        assertTrue(latency.report().isEmpty());
+    }
+
+    @Test
+    void paintingTheToken_EndsTheTrace() throws Exception {
+        Properties properties = new Properties();
+        properties.put("PreloadCardImages", "false");
+        Config config = new Config(Logger.getLogger("KeyLatencyTest"), properties);
+        KeyLatency latency = new KeyLatency(config.players, config.tableSize);
+
+        SwingUtilities.invokeAndWait(() -> {
+            GameScreen screen = new GameScreen(Logger.getLogger("KeyLatencyTest"), config, latency);
+            screen.setSize(screen.getPreferredSize());
+            layout(screen);
+            latency.pressed(0, 7);
+            latency.taken(0, 7);
+            latency.applied(0, 7);
+            screen.placeToken(0, 7);
+            BufferedImage frame = new BufferedImage(screen.getWidth(), screen.getHeight(), BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = frame.createGraphics();
+            screen.paint(g);
+            g.dispose();
+        });
+
+        assertEquals(1, latency.getPresses()[0]);
+        assertTrue(latency.getTotalMaxMillis()[0] > 0);
+    }
+
+    private static void layout(Container container) {
+        container.doLayout();
+        for (Component child : container.getComponents())
+            if (child instanceof Container)
+                layout((Container) child);
+    }
+}
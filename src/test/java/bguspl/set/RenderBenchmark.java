@@ -0,0 +1,260 @@
+package bguspl.set;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Measures how expensive the Swing user interface is per game event, without a display.
+ * The events are applied to a GameScreen on the Swing event thread, and after each one the area it changed is painted
+ * into an offscreen BufferedImage. The report has the time (call + paint) and the allocated bytes per event type.
+ *
+ * Run with: java -Djava.awt.headless=true -cp target/classes:target/test-classes bguspl.set.RenderBenchmark [log]
+ * Without arguments it runs synthetic sequences (dealing, token churn and countdown ticks). With a game log file it
+ * replays the ui calls recorded in it (the lines written by UserInterfaceDecorator).
+ */
+public class RenderBenchmark {
+
+    /**
+     * One ui call.
+     */
+    static class Event {
+        final String type;
+        final Consumer<UserInterface> call;
+
+        Event(String type, Consumer<UserInterface> call) {
+            this.type = type;
+            this.call = call;
+        }
+    }
+
+    /**
+     * The measurements of one event type.
+     */
+    static class Result {
+        final List<Long> nanos = new ArrayList<>();
+        long bytes;
+
+        long count() {
+            return nanos.size();
+        }
+
+        double percentileMicros(double p) {
+            long[] sorted = nanos.stream().mapToLong(Long::longValue).sorted().toArray();
+            return sorted[Math.min(sorted.length - 1, (int) (p * sorted.length))] / 1000.0;
+        }
+
+        double bytesPerEvent() {
+            return (double) bytes / count();
+        }
+    }
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * Applies the events and measures them.
+     *
+     * @param config - the game configuration (table and players sizes).
+     * @param events - the ui calls to apply.
+     * @param warmup - the number of times to apply the events before measuring.
+     * @return - the results per event type (in order of first appearance).
+     */
+    static Map<String, Result> run(Config config, List<Event> events, int warmup) throws Exception {
+        Map<String, Result> results = new LinkedHashMap<>();
+        SwingUtilities.invokeAndWait(() -> {
+            GameScreen screen = new GameScreen(Logger.getLogger("RenderBenchmark"), config);
+            screen.trackDamage();
+            screen.setSize(screen.getPreferredSize());
+            layout(screen);
+            BufferedImage frame = new BufferedImage(screen.getWidth(), screen.getHeight(), BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = frame.createGraphics();
+            screen.paint(g); // the first full frame
+
+            for (int round = 0; round <= warmup; round++) {
+                boolean measure = round == warmup;
+                for (Event event : events) {
+                    long thread = Thread.currentThread().getId();
+                    long bytes = threads.getThreadAllocatedBytes(thread);
+                    long start = System.nanoTime();
+
+                    event.call.accept(screen);
+                    Rectangle damage = screen.takeDamage();
+                    if (!damage.isEmpty()) {
+                        Graphics2D clipped = (Graphics2D) g.create();
+                        clipped.clip(damage);
+                        screen.paint(clipped);
+                        clipped.dispose();
+                    }
+
+                    long nanos = System.nanoTime() - start;
+                    if (measure) {
+                        Result result = results.computeIfAbsent(event.type, t -> new Result());
+                        result.nanos.add(nanos);
+                        result.bytes += threads.getThreadAllocatedBytes(thread) - bytes;
+                    }
+                }
+            }
+            g.dispose();
+        });
+        return results;
+    }
+
+    private static void layout(Container container) {
+        container.doLayout();
+        for (Component child : container.getComponents())
+            if (child instanceof Container)
+                layout((Container) child);
+    }
+
+    /**
+     * Dealing a full table and taking it back, as on a reshuffle.
+     */
+    static List<Event> dealing(Config config, int rounds, Random rnd) {
+        List<Event> events = new ArrayList<>();
+        for (int round = 0; round < rounds; round++) {
+            for (int slot = 0; slot < config.tableSize; slot++) {
+                int card = rnd.nextInt(config.deckSize), s = slot;
+                events.add(new Event("placeCard", ui -> ui.placeCard(card, s)));
+            }
+            for (int slot = 0; slot < config.tableSize; slot++) {
+                int s = slot;
+                events.add(new Event("removeCard", ui -> ui.removeCard(s)));
+            }
+        }
+        return events;
+    }
+
+    /**
+     * Players placing and removing tokens on a full table.
+     */
+    static List<Event> tokenChurn(Config config, int count, Random rnd) {
+        List<Event> events = new ArrayList<>();
+        for (int slot = 0; slot < config.tableSize; slot++) {
+            int s = slot;
+            events.add(new Event("placeCard", ui -> ui.placeCard(s, s)));
+        }
+        boolean[][] tokens = new boolean[config.players][config.tableSize];
+        for (int i = 0; i < count; i++) {
+            int player = rnd.nextInt(config.players), slot = rnd.nextInt(config.tableSize);
+            tokens[player][slot] = !tokens[player][slot];
+            if (tokens[player][slot])
+                events.add(new Event("placeToken", ui -> ui.placeToken(player, slot)));
+            else
+                events.add(new Event("removeToken", ui -> ui.removeToken(player, slot)));
+        }
+        return events;
+    }
+
+    /**
+     * The countdown as the dealer updates it: once a second, then every 10 ms in the warning period.
+     */
+    static List<Event> countdown(Config config) {
+        List<Event> events = new ArrayList<>();
+        for (long millies = 60_000; millies > 5_000; millies -= 1000) {
+            long m = millies;
+            events.add(new Event("setCountdown", ui -> ui.setCountdown(m, false)));
+        }
+        for (long millies = 5_000; millies >= 0; millies -= 10) {
+            long m = millies;
+            events.add(new Event("setCountdown(warn)", ui -> ui.setCountdown(m, true)));
+        }
+        return events;
+    }
+
+    private static final Pattern[] LOG_PATTERNS = {
+            Pattern.compile("placing card (\\d+) in slot (\\d+)"),
+            Pattern.compile("removing card from slot (\\d+)"),
+            Pattern.compile("player (\\d+) placing token on slot (\\d+)"),
+            Pattern.compile("removing player (\\d+) token from slot (\\d+)"),
+            Pattern.compile("removing tokens from slot (\\d+)"),
+            Pattern.compile("updating countdown to (-?\\d+)"),
+            Pattern.compile("setting player (\\d+) freeze to (-?\\d+)"),
+            Pattern.compile("setting player (\\d+) score to (\\d+)")};
+
+    /**
+     * Reads the ui calls recorded in a game log.
+     */
+    static List<Event> recorded(Config config, String log) throws IOException {
+        List<Event> events = new ArrayList<>();
+        for (String line : Files.readAllLines(Paths.get(log))) {
+            for (int p = 0; p < LOG_PATTERNS.length; p++) {
+                Matcher m = LOG_PATTERNS[p].matcher(line);
+                if (!m.find())
+                    continue;
+                long a = Long.parseLong(m.group(1));
+                long b = m.groupCount() > 1 ? Long.parseLong(m.group(2)) : 0;
+                Event event = recordedEvent(config, p, (int) a, b);
+                if (event != null)
+                    events.add(event);
+                break;
+            }
+        }
+        return events;
+    }
+
+    private static Event recordedEvent(Config config, int pattern, int a, long b) {
+        int slot = (int) b;
+        switch (pattern) {
+            case 0:
+                return a < config.deckSize && slot < config.tableSize ? new Event("placeCard", ui -> ui.placeCard(a, slot)) : null;
+            case 1:
+                return a < config.tableSize ? new Event("removeCard", ui -> ui.removeCard(a)) : null;
+            case 2:
+                return a <= config.players && slot < config.tableSize ? new Event("placeToken", ui -> ui.placeToken(a - 1, slot)) : null;
+            case 3:
+                return a <= config.players && slot < config.tableSize ? new Event("removeToken", ui -> ui.removeToken(a - 1, slot)) : null;
+            case 4:
+                return a < config.tableSize ? new Event("removeTokens", ui -> ui.removeTokens(a)) : null;
+            case 5:
+                return new Event("setCountdown", ui -> ui.setCountdown(a, false));
+            case 6:
+                return a <= config.players ? new Event("setFreeze", ui -> ui.setFreeze(a - 1, b)) : null;
+            default:
+                return a <= config.players ? new Event("setScore", ui -> ui.setScore(a - 1, (int) b)) : null;
+        }
+    }
+
+    static void report(String title, Map<String, Result> results) {
+        System.out.println(title);
+        System.out.printf("  %-20s %8s %10s %10s %10s %12s%n", "event", "count", "p50 us", "p99 us", "max us", "bytes/event");
+        results.forEach((type, r) -> System.out.printf("  %-20s %8d %10.1f %10.1f %10.1f %12.0f%n",
+                type, r.count(), r.percentileMicros(0.5), r.percentileMicros(0.99), r.percentileMicros(1), r.bytesPerEvent()));
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        Properties properties = new Properties();
+        properties.put("PreloadCardImages", "false");
+        properties.put("ComputerPlayers", "6");
+        properties.put("HumanPlayers", "0");
+        Config config = new Config(Logger.getLogger("RenderBenchmark"), properties);
+        Random rnd = new Random(1);
+        int warmup = 3;
+
+        if (args.length > 0) {
+            report("recorded: " + args[0], run(config, recorded(config, args[0]), warmup));
+            return;
+        }
+        report("dealing", run(config, dealing(config, 50, rnd), warmup));
+        report("token churn", run(config, tokenChurn(config, 5000, rnd), warmup));
+        report("countdown", run(config, countdown(config), warmup));
+        System.out.println("(" + config.players + " players, " + config.rows + "x" + config.columns + " table, "
+                + Arrays.toString(new int[] { config.cellWidth, config.cellHeight }) + " cells)");
+    }
+}
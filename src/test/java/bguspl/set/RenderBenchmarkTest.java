@@ -0,0 +1,58 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Logger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A quick run of the offscreen rendering benchmark, so it keeps working on a build box with no display.
+ */
+class RenderBenchmarkTest {
+
+    @BeforeAll
+    static void headless() {
+        System.setProperty("java.awt.headless", "true");
+    }
+
+    @Test
+    void run_ReportsEveryEventType() throws Exception {
+        Properties properties = new Properties();
+        properties.put("PreloadCardImages", "false");
+        Config config = new Config(Logger.getLogger("RenderBenchmarkTest"), properties);
+        Random rnd = new Random(1);
+        List<RenderBenchmark.Event> events = new ArrayList<>();
+        events.addAll(RenderBenchmark.dealing(config, 1, rnd));
+        events.addAll(RenderBenchmark.tokenChurn(config, 20, rnd));
+        events.addAll(RenderBenchmark.countdown(config));
+
+        Map<String, RenderBenchmark.Result> results = RenderBenchmark.run(config, events, 0);
+
+        assertTrue(results.keySet().containsAll(Arrays.asList("placeCard", "removeCard", "placeToken", "setCountdown")));
+        assertEquals(events.size(), results.values().stream().mapToLong(RenderBenchmark.Result::count).sum());
+        results.values().forEach(r -> assertTrue(r.percentileMicros(0.5) > 0 && r.bytesPerEvent() >= 0));
+    }
+
+    @Test
+    void run_ShowsTheTokensOfMoreThan64Players() throws Exception {
+        Properties properties = new Properties();
+        properties.put("PreloadCardImages", "false");
+        properties.put("ComputerPlayers", "100");
+        Config config = new Config(Logger.getLogger("RenderBenchmarkTest"), properties);
+        Random rnd = new Random(1);
+        List<RenderBenchmark.Event> events = new ArrayList<>();
+        events.addAll(RenderBenchmark.dealing(config, 1, rnd));
+        events.addAll(RenderBenchmark.tokenChurn(config, 200, rnd));
+
+        Map<String, RenderBenchmark.Result> results = RenderBenchmark.run(config, events, 0);
+
+        assertEquals(events.size(), results.values().stream().mapToLong(RenderBenchmark.Result::count).sum());
+    }
+}
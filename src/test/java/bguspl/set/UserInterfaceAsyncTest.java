@@ -0,0 +1,145 @@
+package bguspl.set;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import javax.swing.*;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+class UserInterfaceAsyncTest {
+
+    @Mock
+    UserInterface ui;
+    @Mock
+    Logger logger;
+
+    UserInterfaceAsync async;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("UiFramesPerSecond", "100");
+        async = new UserInterfaceAsync(logger, new Config(logger, properties), ui);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException, InvocationTargetException {
+        async.dispose();
+        SwingUtilities.invokeAndWait(() -> {});
+    }
+
+    private void waitForFrame() throws InterruptedException, InvocationTargetException {
+        Thread.sleep(50); // a few frames
+        SwingUtilities.invokeAndWait(() -> {});
+    }
+
+    @Test
+    void setCountdown_OnlyTheLatestIsRendered() throws InterruptedException, InvocationTargetException {
+        for (long millies = 1000; millies > 0; millies -= 10)
+            async.setCountdown(millies, true);
+
+        waitForFrame();
+
+        verify(ui, times(1)).setCountdown(anyLong(), anyBoolean());
+        verify(ui).setCountdown(10, true);
+    }
+
+    @Test
+    void placeToken_OnlyTheNetChangeIsRendered() throws InterruptedException, InvocationTargetException {
+        async.placeCard(7, 3);
+        async.placeToken(0, 3);
+        async.placeToken(1, 3);
+        async.removeToken(0, 3);
+
+        waitForFrame();
+
+        verify(ui).placeCard(7, 3);
+        verify(ui).placeToken(1, 3);
+        verify(ui, never()).placeToken(eq(0), anyInt());
+        verify(ui, never()).removeToken(anyInt(), anyInt());
+    }
+
+    @Test
+    void removeCard_AfterItWasRendered() throws InterruptedException, InvocationTargetException {
+        async.placeCard(7, 3);
+        waitForFrame();
+        async.removeTokens(3);
+        async.removeCard(3);
+        waitForFrame();
+
+        verify(ui).placeCard(7, 3);
+        verify(ui).removeCard(3);
+    }
+
+    @Test
+    void tokens_OfMoreThan64Players() throws InterruptedException, InvocationTargetException {
+        Properties properties = new Properties();
+        properties.put("ComputerPlayers", "100");
+        UserInterfaceAsync many = new UserInterfaceAsync(logger, new Config(logger, properties), ui);
+        many.placeCard(7, 3);
+        many.placeToken(70, 3);
+        many.placeToken(5, 3);
+        many.placeToken(99, 3);
+        many.removeToken(5, 3);
+        waitForFrame();
+        many.removeTokens(3);
+        waitForFrame();
+        many.dispose();
+        SwingUtilities.invokeAndWait(() -> {});
+
+        verify(ui).placeToken(70, 3);
+        verify(ui).placeToken(99, 3);
+        verify(ui, never()).placeToken(eq(5), anyInt());
+        verify(ui).removeToken(70, 3);
+        verify(ui).removeToken(99, 3);
+    }
+
+    @Test
+    void uiCalls_AreTimedWhereTheyAreApplied() throws Exception {
+        Path dump = Files.createTempFile("set-ui", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("bguspl.set.UiCall");
+            recording.start();
+            async.placeCard(7, 3);
+            async.setScore(1, 2);
+            waitForFrame();
+            recording.stop();
+            recording.dump(dump);
+            List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+
+            assertEquals(2, events.size());
+            for (RecordedEvent event : events)
+                assertTrue(event.getThread().getJavaName().startsWith("AWT-EventQueue"), event.toString());
+            assertEquals(3, find(events, "placeCard").getInt("slot"));
+            assertEquals(1, find(events, "setScore").getInt("player"));
+        } finally {
+            Files.deleteIfExists(dump);
+        }
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String method) {
+        return events.stream().filter(e -> method.equals(e.getString("method"))).findFirst()
+                .orElseThrow(() -> new AssertionError("no " + method + " call"));
+    }
+}
@@ -0,0 +1,184 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Allocation budgets of the hot paths, measured with the per thread allocated bytes of the JVM after a warm up (so
+ * the JIT had its chance to remove allocations). A change that makes a path allocate past its budget fails the build;
+ * a change that makes it allocate much less should lower the budget. Every test prints the measured bytes per
+ * operation.
+ */
+class AllocationBudgetTest {
+
+    private static final int WARMUP = 20_000;
+    private static final int OPERATIONS = 10_000;
+
+    /**
+     * Bytes per operation.
+     */
+    private static final long KEY_PRESS_BUDGET = 64; // a queue node for a human press, nothing for a computer one
+    private static final long TOKEN_BUDGET = 16; // place and remove a token
+    private static final long CLAIM_BUDGET = 128; // the claiming player: the dealer's queue node
+    private static final long VERIFY_BUDGET = 1024; // the dealer: the slots and cards arrays, the features in testSet
+
+    private static final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private Env env;
+    private Table table;
+
+    @BeforeEach
+    void setUp() {
+        assumeTrue(threads.isThreadAllocatedMemorySupported(), "per thread allocation is not measured on this JVM");
+        threads.setThreadAllocatedMemoryEnabled(true);
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "1");
+        properties.put("ComputerPlayers", "1");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("TurnTimeoutSeconds", "3600");
+        properties.put("PenaltyFreezeSeconds", "0");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        env = new Env(logger, config, new TableTest.MockUserInterface(), new UtilImpl(config));
+        table = new Table(env);
+    }
+
+    @AfterEach
+    void tearDown() {
+        table.gate.close();
+    }
+
+    @Test
+    void keyPress_Human() {
+        Player player = new Player(env, null, table, 0, true);
+        table.gate.open();
+
+        long bytes = measure(() -> {
+            player.keyPressed(3);
+            player.inbox.poll();
+        });
+
+        assertWithinBudget("human key press", bytes, KEY_PRESS_BUDGET);
+    }
+
+    @Test
+    void keyPress_Computer() {
+        Player player = new Player(env, null, table, 1, false);
+        table.placeCard(0, 3);
+        table.gate.open();
+
+        long bytes = measure(() -> {
+            player.keyPressed(3);
+            player.myQueue.poll();
+        });
+
+        assertWithinBudget("computer key press", bytes, KEY_PRESS_BUDGET);
+    }
+
+    @Test
+    void placeAndRemoveToken() {
+        Player player = new Player(env, null, table, 0, true);
+        table.placeCard(0, 3);
+        table.gate.open();
+
+        long bytes = measure(() -> {
+            table.placeToken(player, 3);
+            table.removeToken(player, 3);
+        });
+
+        assertWithinBudget("place and remove token", bytes, TOKEN_BUDGET);
+    }
+
+    @Test
+    void claimVerification() throws InterruptedException {
+        Player[] players = new Player[2];
+        Dealer dealer = new Dealer(env, table, players);
+        players[0] = new Player(env, dealer, table, 0, true);
+        players[1] = new Player(env, dealer, table, 1, true);
+        Thread dealerThread = new Thread(dealer, "dealer");
+        dealerThread.start();
+        try {
+            while (!table.gate.isOpen() || table.countCards() < env.config.tableSize)
+                Thread.sleep(1);
+            Player claimer = new Player(env, dealer, table, 0, true);
+            for (int slot : wrongSet()) // a wrong set, so the table never changes
+                claimer.myTokens.add(slot);
+
+            long dealerId = dealerThread.getId();
+            Runnable claim = () -> claim(dealer, claimer);
+            for (int i = 0; i < WARMUP; i++)
+                claim.run();
+            long dealerBefore = threads.getThreadAllocatedBytes(dealerId);
+            long claimerBytes = measure(claim, 0);
+            long dealerBytes = (threads.getThreadAllocatedBytes(dealerId) - dealerBefore) / OPERATIONS;
+
+            assertWithinBudget("claim (player side)", claimerBytes, CLAIM_BUDGET);
+            assertWithinBudget("claim verification (dealer side)", dealerBytes, VERIFY_BUDGET);
+        } finally {
+            dealer.terminate();
+            dealerThread.interrupt();
+            dealerThread.join();
+        }
+    }
+
+    /**
+     * The round trip of Player.run: declare the set and wait for the verdict.
+     */
+    private static void claim(Dealer dealer, Player player) {
+        synchronized (player) {
+            dealer.IHaveASet(player);
+            while (player.flag == -1) {
+                try {
+                    player.wait();
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+            player.flag = -1;
+        }
+    }
+
+    private int[] wrongSet() {
+        int n = env.config.tableSize;
+        for (int a = 0; a < n; a++)
+            for (int b = a + 1; b < n; b++)
+                for (int c = b + 1; c < n; c++)
+                    if (!env.util.testSet(new int[]{table.slotToCard(a), table.slotToCard(b), table.slotToCard(c)}))
+                        return new int[]{a, b, c};
+        throw new IllegalStateException("every 3 cards on the table are a set");
+    }
+
+    private static long measure(Runnable operation) {
+        return measure(operation, WARMUP);
+    }
+
+    /**
+     * @return - the bytes the current thread allocated per operation, after the warm up.
+     */
+    private static long measure(Runnable operation, int warmup) {
+        for (int i = 0; i < warmup; i++)
+            operation.run();
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < OPERATIONS; i++)
+            operation.run();
+        return (threads.getThreadAllocatedBytes(thread) - before) / OPERATIONS;
+    }
+
+    private static void assertWithinBudget(String path, long bytesPerOperation, long budget) {
+        System.out.printf("allocation: %-34s %8d bytes/op (budget %d)%n", path, bytesPerOperation, budget);
+        assertTrue(bytesPerOperation <= budget,
+                path + " allocates " + bytesPerOperation + " bytes per operation, over its budget of " + budget);
+    }
+}
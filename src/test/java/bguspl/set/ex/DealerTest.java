@@ -5,10 +5,19 @@ import bguspl.set.Env;
 import bguspl.set.UserInterface;
 import bguspl.set.Util;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Properties;
 import java.util.logging.Logger;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 
 public class DealerTest {
@@ -39,6 +48,57 @@ public class DealerTest {
     }
 
 
+    @Test
+    void sameSeed_DealsTheSameCards(@TempDir Path directory) throws IOException, InterruptedException {
+        assertEquals(firstDeal(directory.resolve("first.journal"), "5"), firstDeal(directory.resolve("second.journal"), "5"));
+        assertNotEquals(firstDeal(directory.resolve("first.journal"), "5"), firstDeal(directory.resolve("other.journal"), "6"));
+    }
+
+    @Test
+    void games_ArePlayedOnTheSameThreads(@TempDir Path directory) throws IOException, InterruptedException {
+        Properties overrides = new Properties();
+        overrides.put("Games", "3");
+        overrides.put("RematchPauseSeconds", "0");
+        overrides.put("HistoryDirectory", directory.toString());
+        StressHarness.Game game = new StressHarness.Game(2, overrides);
+        game.start();
+        while (game.dealer.playersThreads[1] == null)
+            Thread.sleep(1);
+        Thread[] threads = game.dealer.playersThreads.clone();
+        game.dealerThread.join(60_000);
+
+        assertFalse(game.running());
+        assertArrayEquals(threads, game.dealer.playersThreads); // started once, for all the games
+        try (MatchHistory history = MatchHistory.open(directory)) {
+            assertEquals(3, history.size());
+            for (int number = 0; number < 3; number++) {
+                MatchHistory.Match match = history.match(number);
+                assertTrue(match.completed);
+                assertTrue(match.players[0].sets + match.players[1].sets > 0); // the scores start over every game
+            }
+            assertEquals(game.players[0].score(), history.match(2).players[0].sets);
+        }
+    }
+
+    /**
+     * @return - the (slot, card) pairs the dealer placed before the players started, as the journal recorded them.
+     */
+    private List<List<Long>> firstDeal(Path journal, String seed) throws IOException, InterruptedException {
+        Properties overrides = new Properties();
+        overrides.put("Seed", seed);
+        overrides.put("JournalFile", journal.toString());
+        StressHarness.Game game = new StressHarness.Game(2, overrides);
+        game.start();
+        while (game.dealer.playersThreads[1] == null) // the players start after the first deal
+            Thread.sleep(1);
+        game.stop(10_000);
+        List<List<Long>> deal = new ArrayList<>();
+        for (GameJournal.Event event : GameJournal.read(journal).events)
+            if (event.type == GameJournal.CARD_PLACED && deal.size() < config.tableSize)
+                deal.add(Arrays.asList(event.fields[0], event.fields[1]));
+        return deal;
+    }
+
     static class MockUserInterface implements UserInterface {
         @Override
         public void placeCard(int card, int slot) {}
@@ -0,0 +1,155 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.logging.Logger;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameCheckpointTest {
+
+    private final Logger logger = new TableTest.MockLogger();
+    private final Config config = new Config(logger, new Properties());
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void state_IsReadBackAsWritten() throws IOException {
+        Path file = directory.resolve("game.checkpoint");
+        GameCheckpoint.State state = state();
+
+        GameCheckpoint.write(file, state);
+        GameCheckpoint.State read = GameCheckpoint.read(file);
+
+        assertEquals(state.seed, read.seed);
+        assertEquals(state.savedEpochMillis, read.savedEpochMillis);
+        assertArrayEquals(state.deck, read.deck);
+        assertArrayEquals(state.slotToCard, read.slotToCard);
+        assertArrayEquals(state.scores, read.scores);
+        assertArrayEquals(state.tokens, read.tokens);
+        assertArrayEquals(state.freezeMillis, read.freezeMillis);
+        assertArrayEquals(state.freezePenalty, read.freezePenalty);
+        assertEquals(state.reshuffleMillis, read.reshuffleMillis);
+        assertNull(read.mismatch(config));
+    }
+
+    @Test
+    void save_WritesTheLatestStateAndNoTemporaryFile() throws IOException {
+        Path file = directory.resolve("game.checkpoint");
+        GameCheckpoint checkpoint = new GameCheckpoint(file, logger);
+        GameCheckpoint.State state = state();
+        for (int i = 0; i < 20; i++) {
+            state.scores = new int[]{i, 0};
+            checkpoint.save(state);
+        }
+        checkpoint.close();
+
+        assertArrayEquals(new int[]{19, 0}, GameCheckpoint.read(file).scores);
+        assertTrue(checkpoint.written() >= 1);
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(1, files.count()); // the temporary files were renamed over the checkpoint
+        }
+
+        checkpoint.delete();
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    void mismatch_IsReportedForAnotherConfiguration() {
+        Properties properties = new Properties();
+        properties.put("ComputerPlayers", "3");
+
+        assertNotNull(state().mismatch(new Config(logger, properties)));
+    }
+
+    @Test
+    void read_RejectsOtherFiles() throws IOException {
+        Path file = directory.resolve("not.checkpoint");
+        Files.write(file, new byte[64]);
+
+        assertThrows(IOException.class, () -> GameCheckpoint.read(file));
+    }
+
+    @Test
+    void resume_RestoresTheGame() throws IOException, InterruptedException {
+        Path file = directory.resolve("game.checkpoint");
+        Properties overrides = new Properties();
+        overrides.put("CheckpointFile", file.toString());
+        overrides.put("ComputerThinkSeconds", "60"); // the players find sets but do not press them
+        overrides.put("TurnTimeoutSeconds", "60");
+        StressHarness.Game game = new StressHarness.Game(2, overrides);
+        GameCheckpoint.State state = state();
+        game.dealer.resume(state);
+        game.start();
+        while (game.players[1].frozenUntil == 0) // the player thread serves the rest of its freeze first
+            Thread.sleep(1);
+
+        assertArrayEquals(state.slotToCard, game.table.slotsSnapshot());
+        assertEquals(3, game.players[0].score());
+        assertEquals(Arrays.asList(0, 10), game.players[0].myTokens);
+        assertTrue(game.players[1].frozenUntil > System.currentTimeMillis() + 50_000);
+
+        assertTrue(game.stop(10_000));
+        GameCheckpoint.State saved = GameCheckpoint.read(file); // stopped from outside: saved for a resume
+        assertArrayEquals(state.scores, saved.scores);
+        assertArrayEquals(state.deck, saved.deck);
+        assertArrayEquals(state.slotToCard, saved.slotToCard);
+        assertArrayEquals(new int[]{0, 10}, saved.tokens[0]);
+        assertTrue(saved.freezeMillis[1] > 50_000);
+        assertTrue(saved.freezePenalty[1]);
+    }
+
+    @Test
+    void resume_ClaimsASetThatWasWaitingForItsVerdict() throws InterruptedException {
+        Properties overrides = new Properties();
+        overrides.put("ComputerThinkSeconds", "60"); // the players find sets but do not press them
+        overrides.put("TurnTimeoutSeconds", "60");
+        StressHarness.Game game = new StressHarness.Game(2, overrides);
+        GameCheckpoint.State state = state();
+        state.tokens = new int[][]{{0, 1, 2}, {}}; // cards 0, 1 and 2 are a set, saved before the dealer checked it
+        game.dealer.resume(state);
+        game.start();
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (game.players[0].score() != 4 && System.currentTimeMillis() < deadline)
+            Thread.sleep(1);
+
+        assertEquals(4, game.players[0].score());
+        assertNull(game.table.cardToSlot[0]);
+        assertTrue(game.stop(10_000));
+    }
+
+    private GameCheckpoint.State state() {
+        GameCheckpoint.State state = new GameCheckpoint.State();
+        state.seed = 17;
+        state.savedEpochMillis = System.currentTimeMillis();
+        state.featureSize = config.featureSize;
+        state.featureCount = config.featureCount;
+        state.tableSize = config.tableSize;
+        state.deck = IntStream.range(config.tableSize, config.deckSize).filter(card -> card != 20).toArray();
+        state.slotToCard = new Integer[config.tableSize];
+        for (int slot = 0; slot < config.tableSize - 1; slot++) // the last slot is empty
+            state.slotToCard[slot] = slot;
+        state.scores = new int[]{3, 5};
+        state.tokens = new int[][]{{0, 10}, {}}; // the card completing their set (20) is out of the game
+        state.freezeMillis = new long[]{0, 60_000};
+        state.freezePenalty = new boolean[]{false, true};
+        state.reshuffleMillis = 30_000;
+        return state;
+    }
+}
@@ -0,0 +1,92 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class GameEventsTest {
+
+    Table table;
+    private Integer[] slotToCard;
+    private Integer[] cardToSlot;
+    private Path dump;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "4");
+        properties.put("TableDelaySeconds", "0");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        slotToCard = new Integer[config.tableSize];
+        cardToSlot = new Integer[config.deckSize];
+
+        Env env = new Env(logger, config, new TableTest.MockUserInterface(), new TableTest.MockUtil());
+        table = new Table(env, slotToCard, cardToSlot);
+        dump = Files.createTempFile("set-events", ".jfr");
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(dump);
+    }
+
+    @Test
+    void placeAndRemoveCard_AreRecorded() throws IOException {
+        try (Recording recording = new Recording()) {
+            recording.enable("bguspl.set.CardPlaced");
+            recording.enable("bguspl.set.CardRemoved");
+            recording.start();
+            table.placeCard(8, 2);
+            table.removeCard(2, new Player[0]);
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        List<RecordedEvent> events = RecordingFile.readAllEvents(dump);
+        assertEquals(2, events.size());
+        RecordedEvent placed = find(events, "bguspl.set.CardPlaced");
+        assertEquals(2, placed.getInt("slot"));
+        assertEquals(8, placed.getInt("card"));
+        RecordedEvent removed = find(events, "bguspl.set.CardRemoved");
+        assertEquals(2, removed.getInt("slot"));
+        assertEquals(8, removed.getInt("card"));
+    }
+
+    @Test
+    void disabledEvents_AreNotRecorded() throws IOException {
+        try (Recording recording = new Recording()) {
+            recording.disable("bguspl.set.CardPlaced");
+            recording.start();
+            table.placeCard(8, 2);
+            recording.stop();
+            recording.dump(dump);
+        }
+
+        long ours = RecordingFile.readAllEvents(dump).stream()
+                .filter(e -> e.getEventType().getName().startsWith("bguspl.set."))
+                .count();
+        assertEquals(0, ours);
+    }
+
+    private static RecordedEvent find(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(name)).findFirst()
+                .orElseThrow(() -> new AssertionError("no " + name + " event"));
+    }
+}
@@ -0,0 +1,160 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameJournalTest {
+
+    private static final int HEADER_SIZE = 28;
+
+    private final Logger logger = new TableTest.MockLogger();
+    private final Config config = new Config(logger, new Properties());
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void events_AreReadBackInOrder() throws IOException {
+        Path file = directory.resolve("game.journal");
+        GameJournal journal = GameJournal.open(file, config, 42, logger);
+        assertTrue(journal.enabled());
+        journal.cardPlaced(11, 80);
+        journal.tokenPlaced(1, 11);
+        journal.claim(1, new Integer[]{11, 3, 7});
+        journal.verdict(1, 0);
+        journal.freeze(1, 3000, true);
+        journal.tokenRemoved(1, 11);
+        journal.reshuffle();
+        journal.cardRemoved(11, 80);
+        journal.close();
+
+        GameJournal.Contents contents = GameJournal.read(file);
+        assertEquals(42, contents.header.seed);
+        assertEquals(config.featureSize, contents.header.featureSize);
+        assertEquals(config.featureCount, contents.header.featureCount);
+        assertEquals(config.rows, contents.header.rows);
+        assertEquals(config.columns, contents.header.columns);
+        assertEquals(config.players, contents.header.players);
+
+        List<GameJournal.Event> events = contents.events;
+        byte[] types = {GameJournal.CARD_PLACED, GameJournal.TOKEN_PLACED, GameJournal.CLAIM, GameJournal.VERDICT,
+                GameJournal.FREEZE, GameJournal.TOKEN_REMOVED, GameJournal.RESHUFFLE, GameJournal.CARD_REMOVED,
+                GameJournal.END};
+        assertEquals(types.length, events.size());
+        for (int i = 0; i < types.length; i++)
+            assertEquals(types[i], events.get(i).type);
+        assertArrayEquals(new long[]{11, 80}, events.get(0).fields);
+        assertArrayEquals(new long[]{1, 11, 3, 7}, events.get(2).fields);
+        assertArrayEquals(new long[]{1, 3000, 1}, events.get(4).fields);
+        for (int i = 1; i < events.size(); i++)
+            assertTrue(events.get(i).nanos >= events.get(i - 1).nanos);
+    }
+
+    @Test
+    void records_AreCompact() throws IOException {
+        Path file = directory.resolve("game.journal");
+        GameJournal journal = GameJournal.open(file, config, 0, logger);
+        for (int i = 0; i < 1000; i++) {
+            journal.tokenPlaced(i % 2, i % 12);
+            journal.tokenRemoved(i % 2, i % 12);
+        }
+        journal.close();
+
+        // a type, the time since the previous record and two small fields
+        assertTrue(Files.size(file) - HEADER_SIZE < 2000 * 6, "the journal takes " + Files.size(file) + " bytes");
+        assertEquals(2001, GameJournal.read(file).events.size());
+    }
+
+    @Test
+    void read_StopsAtATruncatedRecord() throws IOException {
+        Path file = directory.resolve("game.journal");
+        GameJournal journal = GameJournal.open(file, config, 0, logger);
+        journal.cardPlaced(0, 1);
+        journal.claim(0, new Integer[]{0, 1, 2});
+        journal.verdict(0, 1);
+        journal.close();
+        byte[] bytes = Files.readAllBytes(file);
+        List<GameJournal.Event> all = GameJournal.read(file).events;
+
+        for (int length = bytes.length - 1; length >= HEADER_SIZE; length--) { // cut anywhere in the records
+            Files.write(file, Arrays.copyOf(bytes, length));
+            List<GameJournal.Event> events = GameJournal.read(file).events;
+            assertTrue(events.size() < all.size(), "a journal cut to " + length + " bytes has all the events");
+            for (int i = 0; i < events.size(); i++)
+                assertArrayEquals(all.get(i).fields, events.get(i).fields);
+        }
+    }
+
+    @Test
+    void events_AreOnDiskBeforeTheJournalIsClosed() throws IOException, InterruptedException {
+        Path file = directory.resolve("game.journal");
+        GameJournal journal = GameJournal.open(file, config, 0, logger);
+        journal.cardPlaced(0, 1);
+        journal.tokenPlaced(0, 0);
+
+        long deadline = System.currentTimeMillis() + 20 * GameJournal.FLUSH_MILLIS;
+        while (GameJournal.read(file).events.size() < 2 && System.currentTimeMillis() < deadline)
+            Thread.sleep(GameJournal.FLUSH_MILLIS / 5);
+        List<GameJournal.Event> events = GameJournal.read(file).events; // as a crash would leave it
+        journal.close();
+
+        assertEquals(2, events.size());
+        assertEquals(GameJournal.TOKEN_PLACED, events.get(1).type);
+    }
+
+    @Test
+    void events_OfManyThreadsAreAllRecorded() throws IOException, InterruptedException {
+        Path file = directory.resolve("game.journal");
+        GameJournal journal = GameJournal.open(file, config, 0, logger);
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int player = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 5000; i++)
+                    journal.tokenPlaced(player, i % 12);
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+        journal.close();
+
+        int[] perPlayer = new int[threads.length];
+        for (GameJournal.Event event : GameJournal.read(file).events)
+            if (event.type == GameJournal.TOKEN_PLACED)
+                perPlayer[event.field(0)]++;
+        assertArrayEquals(new int[]{5000, 5000, 5000, 5000}, perPlayer);
+    }
+
+    @Test
+    void read_RejectsOtherFiles() throws IOException {
+        Path file = directory.resolve("not.journal");
+        Files.write(file, new byte[64]);
+
+        assertThrows(IOException.class, () -> GameJournal.read(file));
+    }
+
+    @Test
+    void disabled_RecordsNothing() {
+        GameJournal journal = GameJournal.disabled();
+        assertFalse(journal.enabled());
+        journal.cardPlaced(0, 1);
+        journal.claim(0, new Integer[]{0});
+        journal.close();
+    }
+}
@@ -0,0 +1,73 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.logging.Logger;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameMetricsTest {
+
+    private final Logger logger = new TableTest.MockLogger();
+    private final GameMetrics metrics = new GameMetrics(2);
+
+    @AfterEach
+    void tearDown() {
+        metrics.unregister(logger);
+    }
+
+    @Test
+    void claims_AreCountedByVerdict() {
+        metrics.claimQueued();
+        metrics.claimQueued();
+        assertEquals(2, metrics.getClaimQueueDepth());
+        metrics.claimDequeued();
+        metrics.claimVerified(1, 2_000_000);
+        metrics.claimDequeued();
+        metrics.claimVerified(0, 4_000_000);
+
+        assertArrayEquals(new long[]{1, 1, 0}, metrics.getClaims());
+        assertEquals(0, metrics.getClaimQueueDepth());
+        assertEquals(2, metrics.getClaimQueueMaxDepth());
+        assertEquals(2, metrics.getClaimLatencyCount());
+        assertEquals(4.0, metrics.getClaimLatencyMaxMillis());
+    }
+
+    @Test
+    void freezes_AreKeptPerPlayer() {
+        metrics.frozen(0, 1000, false);
+        metrics.frozen(1, 3000, true);
+        metrics.frozen(1, 3000, true);
+
+        assertArrayEquals(new long[]{1000, 6000}, metrics.getFreezeMillis());
+        assertArrayEquals(new long[]{0, 2}, metrics.getPenalties());
+    }
+
+    @Test
+    void register_ExposesTheAttributes() throws Exception {
+        metrics.dealerWokeUp(true);
+        metrics.dealerWokeUp(false);
+        metrics.dealerWokeUp(false);
+        assertTrue(metrics.register(logger));
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName(GameMetrics.OBJECT_NAME);
+        assertEquals(1L, server.getAttribute(name, "DealerWakeupsByNotify"));
+        assertEquals(2L, server.getAttribute(name, "DealerWakeupsByTimeout"));
+
+        metrics.frozen(1, 3000, true);
+        server.invoke(name, "reset", null, null);
+        assertEquals(0L, server.getAttribute(name, "DealerWakeupsByTimeout"));
+        assertArrayEquals(new long[]{0, 1}, metrics.getPenalties()); // the match history counts on them
+
+        metrics.unregister(logger);
+        assertFalse(server.isRegistered(name));
+    }
+}
@@ -0,0 +1,108 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterfaceDecorator;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.function.Consumer;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GameReplayTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void replay_OfARecordedGame_HasNoDivergences() throws IOException, InterruptedException {
+        Path file = directory.resolve("game.journal");
+        Properties properties = new Properties();
+        properties.put("JournalFile", file.toString());
+        StressHarness.Game game = new StressHarness.Game(4, properties);
+        game.start();
+        Thread.sleep(2500);
+        assertTrue(game.stop(10_000), "the game did not stop");
+        int[] scores = Arrays.stream(game.players).mapToInt(Player::score).toArray();
+
+        GameJournal.Contents journal = GameJournal.read(file);
+        GameReplay.Result result = replay(journal);
+
+        assertEquals(Arrays.asList(), result.divergences);
+        assertEquals(journal.events.size(), result.events);
+        assertTrue(result.claims > 0, "the players made no claims");
+        assertArrayEquals(scores, result.scores);
+        assertArrayEquals(game.table.slotsSnapshot(), result.board);
+        assertEquals(GameJournal.END, journal.events.get(journal.events.size() - 1).type);
+    }
+
+    @Test
+    void replay_OfSeveralGames_StartsTheScoresAgainAtEachGame() throws IOException {
+        Logger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, new Properties());
+        GameJournal.Contents journal = GameJournal.read(file(config, logger, j -> {
+            for (int player = 0; player < 2; player++) {
+                if (player == 1)
+                    j.newGame(2);
+                for (int slot = 0; slot < 3; slot++)
+                    j.cardPlaced(slot, slot); // cards 0, 1 and 2 are a set
+                for (int slot = 0; slot < 3; slot++)
+                    j.tokenPlaced(player, slot);
+                j.verdict(player, 1);
+                for (int slot = 0; slot < 3; slot++)
+                    j.cardRemoved(slot, slot);
+            }
+        }));
+
+        GameReplay.Result result = replay(journal);
+
+        assertEquals(Arrays.asList(), result.divergences);
+        assertEquals(2, result.games);
+        assertArrayEquals(new int[]{0, 1}, result.scores); // the second game's
+    }
+
+    @Test
+    void replay_FindsAWrongVerdict() throws IOException {
+        Logger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, new Properties());
+        GameJournal.Contents journal = GameJournal.read(file(config, logger, j -> {
+            j.cardPlaced(0, 0); // cards 0, 1 and 3 are not a set
+            j.cardPlaced(1, 1);
+            j.cardPlaced(2, 3);
+            j.tokenPlaced(0, 0);
+            j.tokenPlaced(0, 1);
+            j.tokenPlaced(0, 2);
+            j.verdict(0, 1);
+        }));
+
+        GameReplay.Result result = replay(journal);
+
+        assertEquals(1, result.divergences.size(), result.divergences.toString());
+        assertEquals(1, result.scores[0]); // the journal is what happened
+    }
+
+    private Path file(Config config, Logger logger, Consumer<GameJournal> events) {
+        Path file = directory.resolve("made.journal");
+        GameJournal journal = GameJournal.open(file, config, 0, logger);
+        events.accept(journal);
+        journal.close();
+        return file;
+    }
+
+    private static GameReplay.Result replay(GameJournal.Contents journal) {
+        Logger logger = new TableTest.MockLogger();
+        Config config = GameReplay.config(journal.header, logger);
+        UtilImpl util = new UtilImpl(config);
+        Env env = new Env(logger, config, new UserInterfaceDecorator(logger, util, null), util);
+        return new GameReplay(env, journal).run(0);
+    }
+}
@@ -0,0 +1,31 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.GameRandom;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.Test;
+
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JitWarmupTest {
+
+    @Test
+    void run_PlaysClaimsWithinTheBudgetAndLeavesTheGameAlone() {
+        Logger logger = new TableTest.MockLogger();
+        Properties properties = new Properties();
+        properties.put("Seed", "5");
+        Config config = new Config(logger, properties);
+        Env env = new Env(logger, config, new DealerTest.MockUserInterface(), new UtilImpl(config));
+
+        JitWarmup warmup = JitWarmup.run(env, 1000);
+
+        assertTrue(warmup.claims > 0);
+        assertTrue(warmup.millis < 1000 + 500, warmup.toString()); // stopping takes a moment, not a dealer timeout
+        assertEquals(new GameRandom(config).deck().nextInt(1_000_000), env.random.deck().nextInt(1_000_000));
+    }
+}
@@ -0,0 +1,43 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyInboxTest {
+
+    KeyInbox inbox = new KeyInbox(3);
+
+    @Test
+    void offer_KeepsOrder() {
+        inbox.offer(5);
+        inbox.offer(1);
+        assertEquals(5, (int) inbox.poll());
+        assertEquals(1, (int) inbox.poll());
+        assertNull(inbox.poll());
+    }
+
+    @Test
+    void offer_DropsAndCountsOverflow() {
+        for (int i = 0; i < 3; i++)
+            assertTrue(inbox.offer(i));
+        assertFalse(inbox.offer(3));
+        assertFalse(inbox.offer(4));
+        assertEquals(2, inbox.dropped());
+
+        inbox.poll();
+        assertTrue(inbox.offer(7)); // there is room again
+    }
+
+    @Test
+    void clear_EmptiesTheInbox() {
+        inbox.offer(1);
+        inbox.offer(2);
+        inbox.clear();
+        assertNull(inbox.poll());
+        for (int i = 0; i < 3; i++)
+            assertTrue(inbox.offer(i)); // the whole capacity is available again
+    }
+}
@@ -0,0 +1,69 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogram_ReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(99));
+        assertEquals(0, histogram.mean());
+    }
+
+    @Test
+    void smallValues_AreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100; i++)
+            histogram.record(i);
+
+        assertEquals(50, histogram.percentile(50));
+        assertEquals(99, histogram.percentile(99));
+        assertEquals(100, histogram.percentile(100));
+        assertEquals(50.5, histogram.mean());
+    }
+
+    @Test
+    void largeValues_AreWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long i = 1; i <= 10_000; i++)
+            histogram.record(i * 1_000); // 1 us .. 10 ms
+
+        assertWithin(5_000_000, histogram.percentile(50));
+        assertWithin(9_900_000, histogram.percentile(99));
+        assertEquals(10_000_000, histogram.max());
+        assertEquals(10_000_000, histogram.percentile(100));
+    }
+
+    @Test
+    void indexes_AreMonotonicAndCoverTheirValues() {
+        int last = -1;
+        for (long value = 0; value < 1 << 20; value += 7) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(index >= last);
+            assertTrue(LatencyHistogram.highestValueAt(index) >= value);
+            last = index;
+        }
+        assertTrue(LatencyHistogram.highestValueAt(LatencyHistogram.indexOf(Long.MAX_VALUE)) == Long.MAX_VALUE);
+    }
+
+    @Test
+    void reset_ClearsEverything() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(1_000_000);
+        histogram.reset();
+
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.max());
+        assertEquals(0, histogram.percentile(50));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / 64, "expected ~" + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,142 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LockProfilerTest {
+
+    @Test
+    void disabled_ReturnsTheLockItself() {
+        LockProfiler profiler = new LockProfiler(false);
+        ReadWriteLock lock = new ReentrantReadWriteLock();
+
+        assertSame(lock, profiler.wrap("lock", lock));
+        assertTrue(profiler.report().isEmpty());
+    }
+
+    @Test
+    void wrappedLock_CountsContendedAcquisitions() throws InterruptedException {
+        LockProfiler profiler = new LockProfiler(true);
+        ReadWriteLock lock = profiler.wrap("lock", new ReentrantReadWriteLock());
+        CountDownLatch locked = new CountDownLatch(1);
+
+        Thread writer = new Thread(() -> {
+            lock.writeLock().lock();
+            locked.countDown();
+            sleep(30);
+            lock.writeLock().unlock();
+        }, "writer");
+        writer.start();
+        locked.await();
+        lock.readLock().lock(); // waits for the writer
+        lock.readLock().lock(); // reentrant, not contended
+        lock.readLock().unlock();
+        lock.readLock().unlock();
+        writer.join();
+
+        LockProfiler.LockStats read = profiler.stats("lock.read", true);
+        LockProfiler.LockStats write = profiler.stats("lock.write", true);
+        assertEquals(2, read.acquisitions.sum());
+        assertEquals(1, read.contended.sum());
+        assertTrue(read.waitNanos.sum() >= 20_000_000);
+        assertTrue(write.holdNanos.sum() >= 20_000_000);
+        assertTrue(write.holders.containsKey("writer"));
+    }
+
+    @Test
+    void wrappedReadLock_DoesNotBargePastAQueuedWriter() throws InterruptedException {
+        LockProfiler profiler = new LockProfiler(true);
+        ReentrantReadWriteLock plain = new ReentrantReadWriteLock();
+        ReadWriteLock lock = profiler.wrap("lock", plain);
+        List<String> order = new CopyOnWriteArrayList<>();
+
+        lock.readLock().lock();
+        Thread writer = new Thread(() -> {
+            lock.writeLock().lock();
+            order.add("writer");
+            lock.writeLock().unlock();
+        }, "writer");
+        writer.start();
+        while (!plain.hasQueuedThread(writer))
+            Thread.sleep(1);
+        Thread reader = new Thread(() -> {
+            lock.readLock().lock();
+            order.add("reader");
+            lock.readLock().unlock();
+        }, "reader");
+        reader.start();
+        long deadline = System.currentTimeMillis() + 1000;
+        while (!plain.hasQueuedThread(reader) && reader.isAlive() && System.currentTimeMillis() < deadline)
+            Thread.sleep(1); // queued behind the writer, instead of sharing the read lock at once
+        lock.readLock().unlock();
+        writer.join();
+        reader.join();
+
+        assertEquals(Arrays.asList("writer", "reader"), order);
+    }
+
+    @Test
+    void semaphore_MeasuresHoldTime() throws InterruptedException {
+        LockProfiler profiler = new LockProfiler(true);
+        Semaphore semaphore = profiler.semaphore("semaphore", 1, true);
+
+        semaphore.acquire();
+        sleep(10);
+        semaphore.release();
+
+        LockProfiler.LockStats stats = profiler.stats("semaphore", true);
+        assertEquals(1, stats.acquisitions.sum());
+        assertEquals(0, stats.contended.sum());
+        assertTrue(stats.holdNanos.sum() >= 5_000_000);
+        assertEquals(1, semaphore.availablePermits());
+    }
+
+    @Test
+    void monitors_AreSampled() throws InterruptedException {
+        LockProfiler profiler = new LockProfiler(true);
+        Object monitor = new Object();
+        profiler.nameMonitor("monitor", monitor);
+        profiler.start();
+        CountDownLatch locked = new CountDownLatch(1);
+
+        Thread holder = new Thread(() -> {
+            synchronized (monitor) {
+                locked.countDown();
+                sleep(100);
+            }
+        }, "holder");
+        profiler.profileThread(holder);
+        profiler.profileThread(Thread.currentThread());
+        holder.start();
+        locked.await();
+        synchronized (monitor) {
+            locked.getCount(); // blocked until the holder is done
+        }
+        holder.join();
+        profiler.stop();
+
+        LockProfiler.LockStats stats = profiler.stats("monitor", false);
+        assertTrue(stats.waitNanos.sum() > 0);
+        assertTrue(stats.holders.containsKey("holder"));
+        List<String> report = profiler.report();
+        assertTrue(report.stream().anyMatch(line -> line.contains("monitor") && line.contains("holder")));
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException ignored) {
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchHistoryTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void match_IsReadBackAsAppended() throws IOException {
+        MatchHistory.Match match = match(1000, "alice", 3, "bob", 5);
+        try (MatchHistory history = MatchHistory.open(directory)) {
+            history.append(match);
+        }
+
+        try (MatchHistory history = MatchHistory.open(directory)) {
+            assertEquals(1, history.size());
+            MatchHistory.Match read = history.match(0);
+            assertEquals(match.startEpochMillis, read.startEpochMillis);
+            assertEquals(match.durationMillis, read.durationMillis);
+            assertEquals(match.seed, read.seed);
+            assertTrue(read.completed);
+            assertEquals("bob", read.players[1].name);
+            assertEquals(5, read.players[1].sets);
+            assertEquals(1, read.players[1].penalties);
+            assertEquals(500, read.players[1].frozenMillis);
+        }
+    }
+
+    @Test
+    void lookups_ByPlayerAndByTime() throws IOException {
+        try (MatchHistory history = MatchHistory.open(directory)) {
+            history.append(match(1000, "alice", 3, "bob", 5));
+            history.append(match(2000, "alice", 4, "carol", 2));
+            history.append(match(3000, "bob", 1, "carol", 6));
+
+            assertEquals(Arrays.asList(0, 1), history.matchesOf("alice"));
+            assertEquals(Arrays.asList(1, 2), history.matchesOf("carol"));
+            assertEquals(Collections.emptyList(), history.matchesOf("dave"));
+            // the games end 100ms after they start
+            assertArrayEquals(new int[]{1, 2}, history.between(2000, 4000));
+            assertArrayEquals(new int[]{0}, history.between(0, 1101));
+            assertArrayEquals(new int[0], history.between(5000, 6000));
+        }
+    }
+
+    @Test
+    void lookupsByTime_WithGamesAppendedOutOfOrder() throws IOException {
+        try (MatchHistory first = MatchHistory.open(directory);
+             MatchHistory second = MatchHistory.open(directory)) { // e.g. two processes sharing the history
+            first.append(match(3000, "alice", 3, "bob", 5));
+            second.append(match(1000, "carol", 4, "dave", 2)); // ended earlier, got the lock later
+            first.append(match(2000, "alice", 1, "carol", 6));
+            assertLookupsByTime(first);
+        }
+        try (MatchHistory history = MatchHistory.open(directory)) {
+            assertLookupsByTime(history);
+        }
+    }
+
+    private static void assertLookupsByTime(MatchHistory history) {
+        assertArrayEquals(new int[]{1}, history.between(0, 1101));
+        assertArrayEquals(new int[]{0, 2}, history.between(2000, 4000));
+        assertArrayEquals(new int[]{1, 2}, history.between(1000, 2101));
+        List<MatchHistory.Standing> early = history.leaderboard(0, 1101, 10);
+        assertEquals(2, early.size());
+        assertEquals("carol", early.get(0).name);
+        assertEquals(4, early.get(0).sets);
+    }
+
+    @Test
+    void leaderboards_AllTimeAndTimeRange() throws IOException {
+        try (MatchHistory history = MatchHistory.open(directory)) {
+            history.append(match(1000, "alice", 3, "bob", 5));
+            history.append(match(2000, "alice", 4, "carol", 2));
+            history.append(match(3000, "bob", 1, "carol", 6));
+
+            MatchHistory.Standing alice = history.standing("alice");
+            assertEquals(2, alice.matches);
+            assertEquals(1, alice.wins);
+            assertEquals(7, alice.sets);
+            assertEquals(2, alice.penalties);
+
+            List<MatchHistory.Standing> allTime = history.leaderboard(2);
+            assertEquals(2, allTime.size());
+            assertEquals("carol", allTime.get(0).name); // one win, 8 sets
+            assertEquals("alice", allTime.get(1).name); // one win, 7 sets
+
+            List<MatchHistory.Standing> late = history.leaderboard(2000, 4000, 10);
+            assertEquals(3, late.size());
+            assertEquals("carol", late.get(0).name);
+            assertEquals(1, late.get(0).wins);
+            assertEquals(8, late.get(0).sets);
+        }
+    }
+
+    @Test
+    void open_DropsAGameCutShortByACrash() throws IOException {
+        try (MatchHistory history = MatchHistory.open(directory)) {
+            history.append(match(1000, "alice", 3, "bob", 5));
+            history.append(match(2000, "alice", 4, "bob", 2));
+        }
+        try (FileChannel index = FileChannel.open(directory.resolve("matches.idx"), StandardOpenOption.WRITE)) {
+            index.truncate(MatchHistory.MATCH_ENTRY_SIZE + 10); // the second game's entry was half written
+        }
+
+        try (MatchHistory history = MatchHistory.open(directory)) {
+            assertEquals(1, history.size());
+            assertEquals(3, history.standing("alice").sets);
+            history.append(match(3000, "carol", 1, "bob", 0));
+            assertEquals(2, history.size());
+            assertEquals("carol", history.match(1).players[0].name);
+        }
+        try (MatchHistory history = MatchHistory.open(directory)) {
+            assertEquals(Arrays.asList(0, 1), history.matchesOf("bob"));
+            assertEquals(5, history.standing("bob").sets);
+        }
+    }
+
+    @Test
+    void append_KeepsTheNamesOfAnotherProcessThatCrashed() throws IOException {
+        try (MatchHistory history = MatchHistory.open(directory)) {
+            history.append(match(1000, "alice", 3, "bob", 5));
+            // another process added a name, and part of another, and crashed before its game's index entry
+            Files.write(directory.resolve("players.txt"), "mallory\ntru".getBytes(StandardCharsets.UTF_8),
+                    StandardOpenOption.APPEND);
+            history.append(match(2000, "zoe", 4, "alice", 2));
+            assertEquals(4, history.standing("zoe").sets);
+        }
+
+        try (MatchHistory history = MatchHistory.open(directory)) {
+            assertEquals(Arrays.asList(1), history.matchesOf("zoe"));
+            assertEquals(4, history.standing("zoe").sets);
+            assertEquals(5, history.standing("alice").sets);
+            assertEquals("zoe", history.match(1).players[0].name);
+        }
+    }
+
+    @Test
+    void dealer_RecordsTheGame() throws IOException, InterruptedException {
+        Properties overrides = new Properties();
+        overrides.put("HistoryDirectory", directory.toString());
+        StressHarness.Game game = new StressHarness.Game(2, overrides);
+        game.start();
+        while (game.dealer.playersThreads[1] == null)
+            Thread.sleep(1);
+        assertTrue(game.stop(10_000));
+
+        try (MatchHistory history = MatchHistory.open(directory)) {
+            assertEquals(1, history.size());
+            MatchHistory.Match match = history.match(0);
+            assertFalse(match.completed);
+            assertEquals(2, match.players.length);
+            assertEquals(game.players[0].score(), match.players[0].sets);
+            assertEquals(game.env.random.seed(), match.seed);
+        }
+    }
+
+    private static MatchHistory.Match match(long start, String first, int firstSets, String second, int secondSets) {
+        return new MatchHistory.Match(start, 100, start * 7, true, new MatchHistory.PlayerResult[]{
+                new MatchHistory.PlayerResult(first, firstSets, 1, 500),
+                new MatchHistory.PlayerResult(second, secondSets, 1, 500)});
+    }
+}
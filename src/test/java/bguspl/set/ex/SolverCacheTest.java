@@ -0,0 +1,65 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.Properties;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class SolverCacheTest {
+
+    Table table;
+    Player[] players = {};
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("TableDelaySeconds", "0");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        Env env = new Env(logger, config, new TableTest.MockUserInterface(), new UtilImpl(config));
+        table = new Table(env);
+        table.placeCard(0, 4);
+        table.placeCard(1, 7);
+        table.placeCard(2, 9);
+    }
+
+    @Test
+    void current_SameBoardIsComputedOnce() {
+        SolverCache.Entry first = table.solverCache.current();
+        SolverCache.Entry second = table.solverCache.current();
+
+        assertSame(first, second);
+        assertEquals(1, table.solverCache.misses());
+        assertEquals(1, table.solverCache.hits());
+        assertEquals(1, first.sets.length);
+    }
+
+    @Test
+    void current_RemoveCardInvalidates() {
+        SolverCache.Entry before = table.solverCache.current();
+        long version = table.version();
+
+        table.removeCard(9, players);
+
+        SolverCache.Entry after = table.solverCache.current();
+        assertNotSame(before, after);
+        assertEquals(version + 1, after.version);
+        assertEquals(0, after.sets.length);
+    }
+
+    @Test
+    void current_PlaceCardInvalidates() {
+        table.removeCard(9, players);
+        assertEquals(0, table.solverCache.current().sets.length);
+
+        table.placeCard(2, 11);
+
+        assertEquals(1, table.solverCache.current().sets.length);
+        assertEquals(2, table.solverCache.misses());
+    }
+}
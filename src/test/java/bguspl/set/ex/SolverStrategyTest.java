@@ -0,0 +1,82 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import java.util.Arrays;
+import java.util.Properties;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SolverStrategyTest {
+
+    Env env;
+    Table table;
+    Player player;
+    Integer[] slotToCard;
+    Integer[] cardToSlot;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("TableDelaySeconds", "0");
+        properties.put("ComputerErrorRate", "0");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        env = new Env(logger, config, new TableTest.MockUserInterface(), new UtilImpl(config));
+        slotToCard = new Integer[config.tableSize];
+        cardToSlot = new Integer[config.deckSize];
+        table = new Table(env, slotToCard, cardToSlot);
+        player = new Player(env, null, table, 0, false);
+    }
+
+    private void place(int card, int slot) {
+        slotToCard[slot] = card;
+        cardToSlot[card] = slot;
+    }
+
+    @Test
+    void nextPresses_FindsTheOnlySet() {
+        place(0, 4); // features 0000
+        place(1, 7); // features 0001
+        place(2, 9); // features 0002 - a set with the two above
+        place(4, 1); // features 0011 - no set with any two of the above
+
+        int[] presses = new SolverStrategy(env, env.random.computer(0)).nextPresses(table, player);
+
+        Arrays.sort(presses);
+        assertArrayEquals(new int[] { 4, 7, 9 }, presses);
+        int[] cards = Arrays.stream(presses).map(slot -> slotToCard[slot]).toArray();
+        assertTrue(env.util.testSet(cards));
+    }
+
+    @Test
+    void nextPresses_RemovesWrongTokensAndSkipsPlacedOnes() {
+        place(0, 4);
+        place(1, 7);
+        place(2, 9);
+        place(4, 1);
+        player.myTokens.add(4); // part of the set
+        player.myTokens.add(1); // not part of the set
+
+        int[] presses = new SolverStrategy(env, env.random.computer(0)).nextPresses(table, player);
+
+        assertEquals(3, presses.length);
+        assertEquals(1, presses[0]); // the wrong token is removed first
+        int[] placed = Arrays.copyOfRange(presses, 1, 3);
+        Arrays.sort(placed);
+        assertArrayEquals(new int[] { 7, 9 }, placed);
+    }
+
+    @Test
+    void nextPresses_NoSetOnTheTable() {
+        place(0, 0);
+        place(1, 1);
+        place(4, 2);
+
+        assertEquals(0, new SolverStrategy(env, env.random.computer(0)).nextPresses(table, player).length);
+    }
+}
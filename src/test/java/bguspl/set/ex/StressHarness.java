@@ -0,0 +1,288 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UserInterfaceDecorator;
+import bguspl.set.Util;
+import bguspl.set.UtilImpl;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * A stress / soak run of the game: many computer players pressing as fast as they can, game after game, for as long
+ * as asked, with no user interface (runs on a headless box). While the games run, a checker thread keeps verifying:
+ * <ul>
+ * <li>the board: slotToCard[x] == y iff cardToSlot[y] == x,</li>
+ * <li>the tokens: no player has more tokens than a set, twice the same slot, or a token on an empty slot,</li>
+ * <li>progress: no deadlocked threads, and the players keep making claims.</li>
+ * </ul>
+ * Every second it samples the throughput (claims and key presses per second) and the used heap, so slowdowns and
+ * leaks show up as a trend over the run.
+ * <p>
+ * Run: java -cp target/classes:target/test-classes bguspl.set.ex.StressHarness [seconds] [players]
+ */
+public class StressHarness {
+
+    /**
+     * What to run.
+     */
+    static class Options {
+        int players = 12;
+        long durationMillis = 120_000;
+        long checkMillis = 2;
+        long sampleMillis = 1000;
+        long stallMillis = 10_000; // no claim for this long while the game runs is a stall
+    }
+
+    /**
+     * One throughput sample.
+     */
+    static class Sample {
+        final double seconds;
+        final double claimsPerSecond;
+        final double pressesPerSecond;
+        final double usedHeapMegabytes;
+
+        Sample(double seconds, double claimsPerSecond, double pressesPerSecond, double usedHeapMegabytes) {
+            this.seconds = seconds;
+            this.claimsPerSecond = claimsPerSecond;
+            this.pressesPerSecond = pressesPerSecond;
+            this.usedHeapMegabytes = usedHeapMegabytes;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%7.1f s %9.1f claims/s %10.1f presses/s %8.1f MB heap",
+                    seconds, claimsPerSecond, pressesPerSecond, usedHeapMegabytes);
+        }
+    }
+
+    /**
+     * What happened.
+     */
+    static class Report {
+        int games;
+        long checks;
+        long claims;
+        long presses;
+        final List<String> violations = new ArrayList<>();
+        final List<Sample> samples = new ArrayList<>();
+
+        void violation(String violation) {
+            if (violations.size() < 100) // one broken invariant tends to be seen by every check after it
+                violations.add(violation);
+        }
+    }
+
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    static Report run(Options options) throws InterruptedException {
+        Report report = new Report();
+        long start = System.nanoTime();
+        long end = start + options.durationMillis * 1_000_000;
+        long[] totals = new long[2]; // claims and presses of the finished games
+        long lastSample = start;
+        long lastClaims = 0, lastPresses = 0;
+
+        while (System.nanoTime() < end && report.violations.isEmpty()) {
+            Game game = new Game(options.players);
+            report.games++;
+            game.start();
+            long lastProgress = System.nanoTime();
+            long progressClaims = -1;
+            while (game.running() && System.nanoTime() < end) {
+                Thread.sleep(options.checkMillis);
+                game.check(report);
+                report.checks++;
+
+                long now = System.nanoTime();
+                long claims = totals[0] + game.claims();
+                long presses = totals[1] + game.presses();
+                if (claims != progressClaims) {
+                    progressClaims = claims;
+                    lastProgress = now;
+                } else if (now - lastProgress > options.stallMillis * 1_000_000) {
+                    report.violation("no claim for " + options.stallMillis + " ms" + threadDump());
+                    break;
+                }
+                if (now - lastSample >= options.sampleMillis * 1_000_000) {
+                    double seconds = (now - lastSample) / 1e9;
+                    Runtime runtime = Runtime.getRuntime();
+                    report.samples.add(new Sample((now - start) / 1e9, (claims - lastClaims) / seconds,
+                            (presses - lastPresses) / seconds, (runtime.totalMemory() - runtime.freeMemory()) / 1e6));
+                    lastSample = now;
+                    lastClaims = claims;
+                    lastPresses = presses;
+                }
+                long[] deadlocked = threads.findDeadlockedThreads();
+                if (deadlocked != null) {
+                    report.violation("deadlock:" + threadDump());
+                    break;
+                }
+            }
+            if (!game.stop(options.stallMillis))
+                report.violation("the game did not stop within " + options.stallMillis + " ms" + threadDump());
+            game.check(report);
+            totals[0] += game.claims();
+            totals[1] += game.presses();
+        }
+        report.claims = totals[0];
+        report.presses = totals[1];
+        return report;
+    }
+
+    /**
+     * One game with its dealer and players, run like Main runs it but with no user interface.
+     */
+    static class Game {
+        final Env env;
+        final Table table;
+        final Player[] players;
+        final Dealer dealer;
+        final Thread dealerThread;
+
+        Game(int computerPlayers) {
+            this(computerPlayers, new Properties());
+        }
+
+        /**
+         * @param overrides - configuration properties to set on top of the stress ones.
+         */
+        Game(int computerPlayers, Properties overrides) {
+            Properties properties = new Properties();
+            properties.put("LogLevel", "OFF");
+            properties.put("HumanPlayers", "0");
+            properties.put("ComputerPlayers", String.valueOf(computerPlayers));
+            properties.put("ComputerStrategy", "Solver");
+            properties.put("ComputerErrorRate", "0.3");
+            properties.put("ComputerPressesPerSecond", "0");
+            properties.put("TableDelaySeconds", "0");
+            properties.put("TurnTimeoutSeconds", "1");
+            properties.put("TurnTimeoutWarningSeconds", "0");
+            properties.put("PointFreezeSeconds", "0");
+            properties.put("PenaltyFreezeSeconds", "0");
+            properties.putAll(overrides);
+            Logger logger = Logger.getAnonymousLogger();
+            logger.setUseParentHandlers(false);
+            Config config = new Config(logger, properties);
+            logger.setLevel(Level.OFF);
+            Util util = new UtilImpl(config);
+            env = new Env(logger, config, new UserInterfaceDecorator(logger, util, null), util);
+            table = new Table(env);
+            players = new Player[config.players];
+            dealer = new Dealer(env, table, players);
+            for (int i = 0; i < players.length; i++)
+                players[i] = new Player(env, dealer, table, i, false);
+            dealerThread = new Thread(dealer, "dealer");
+        }
+
+        void start() {
+            dealerThread.start();
+        }
+
+        boolean running() {
+            return dealerThread.isAlive();
+        }
+
+        /**
+         * Terminates the game (if it is still running) and waits for the dealer.
+         *
+         * @return - true iff the dealer finished in time.
+         */
+        boolean stop(long timeoutMillis) throws InterruptedException {
+            if (dealerThread.isAlive())
+                dealer.terminate();
+            dealerThread.join(timeoutMillis);
+            return !dealerThread.isAlive();
+        }
+
+        long claims() {
+            return Arrays.stream(table.metrics.getClaims()).sum();
+        }
+
+        long presses() {
+            return Arrays.stream(env.keyLatency.getPresses()).sum();
+        }
+
+        /**
+         * Checks the board and the tokens, holding the table's read lock so no card moves meanwhile.
+         */
+        void check(Report report) {
+            table.stcRWLock.readLock().lock();
+            try {
+                for (int slot = 0; slot < table.slotToCard.length; slot++) {
+                    Integer card = table.slotToCard[slot];
+                    if (card != null && !Integer.valueOf(slot).equals(table.cardToSlot[card]))
+                        report.violation("slot " + slot + " has card " + card + " but the card is in slot "
+                                + table.cardToSlot[card]);
+                }
+                for (int card = 0; card < table.cardToSlot.length; card++) {
+                    Integer slot = table.cardToSlot[card];
+                    if (slot != null && !Integer.valueOf(card).equals(table.slotToCard[slot]))
+                        report.violation("card " + card + " is in slot " + slot + " but the slot has card "
+                                + table.slotToCard[slot]);
+                }
+                for (Player player : players) {
+                    synchronized (player.myTokens) {
+                        checkTokens(report, player);
+                    }
+                }
+            } finally {
+                table.stcRWLock.readLock().unlock();
+            }
+        }
+
+        private void checkTokens(Report report, Player player) {
+            List<Integer> tokens = new ArrayList<>(player.myTokens);
+            Set<Integer> distinct = new HashSet<>(tokens);
+            if (tokens.size() > env.config.featureSize)
+                report.violation("player " + player.id + " has " + tokens.size() + " tokens: " + tokens);
+            if (distinct.size() != tokens.size())
+                report.violation("player " + player.id + " has the same slot twice: " + tokens);
+            for (int slot : tokens)
+                if (table.slotToCard[slot] == null)
+                    report.violation("player " + player.id + " has a token on the empty slot " + slot);
+        }
+    }
+
+    private static String threadDump() {
+        StringBuilder dump = new StringBuilder();
+        for (ThreadInfo info : threads.dumpAllThreads(true, true))
+            dump.append('\n').append(info);
+        return dump.toString();
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Options options = new Options();
+        if (args.length > 0)
+            options.durationMillis = (long) (Double.parseDouble(args[0]) * 1000);
+        if (args.length > 1)
+            options.players = Integer.parseInt(args[1]);
+
+        System.out.printf("stress: %d computer players for %.0f s%n", options.players, options.durationMillis / 1000.0);
+        Report report = run(options);
+        report.samples.forEach(System.out::println);
+        System.out.printf("%d games, %d claims, %d key presses, %d checks, %d violations%n",
+                report.games, report.claims, report.presses, report.checks, report.violations.size());
+        if (report.samples.size() >= 4) {
+            int quarter = report.samples.size() / 4;
+            double first = report.samples.subList(0, quarter).stream().mapToDouble(s -> s.claimsPerSecond).average().orElse(0);
+            double last = report.samples.subList(report.samples.size() - quarter, report.samples.size()).stream()
+                    .mapToDouble(s -> s.claimsPerSecond).average().orElse(0);
+            System.out.printf("claims/s: first quarter %.1f, last quarter %.1f (%+.0f%%)%n",
+                    first, last, first > 0 ? (last - first) * 100 / first : 0);
+        }
+        report.violations.forEach(System.out::println);
+        System.exit(report.violations.isEmpty() ? 0 : 1);
+    }
+}
@@ -0,0 +1,29 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * A short run of the stress harness, so the invariants are checked under contention on every build.
+ * Longer soak runs: StressHarness.main.
+ */
+class StressHarnessTest {
+
+    @Test
+    void shortRun_KeepsTheInvariants() throws InterruptedException {
+        StressHarness.Options options = new StressHarness.Options();
+        options.players = 8;
+        options.durationMillis = 3000;
+        options.stallMillis = 5000;
+
+        StressHarness.Report report = StressHarness.run(options);
+
+        assertEquals(0, report.violations.size(), String.join("\n", report.violations));
+        assertTrue(report.games >= 1);
+        assertTrue(report.claims > 0);
+        assertTrue(report.checks > 0);
+        assertTrue(report.samples.size() >= 2);
+    }
+}
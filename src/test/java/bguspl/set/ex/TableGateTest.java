@@ -0,0 +1,51 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TableGateTest {
+
+    TableGate gate = new TableGate();
+
+    @Test
+    void open_ReleasesAllWaiters() throws InterruptedException {
+        int waiters = 8;
+        CountDownLatch started = new CountDownLatch(waiters);
+        CountDownLatch released = new CountDownLatch(waiters);
+        for (int i = 0; i < waiters; i++) {
+            Thread t = new Thread(() -> {
+                started.countDown();
+                try {
+                    gate.await();
+                    released.countDown();
+                } catch (InterruptedException ignored) {
+                }
+            });
+            t.setDaemon(true);
+            t.start();
+        }
+        started.await();
+        assertFalse(released.await(50, TimeUnit.MILLISECONDS)); // the gate starts closed
+
+        gate.open();
+
+        assertTrue(released.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void close_RecordsClosedTime() throws InterruptedException {
+        gate.open();
+        gate.close();
+        Thread.sleep(20);
+        gate.open();
+
+        assertTrue(gate.isOpen());
+        assertEquals(2, gate.closures()); // the initial closed period counts too
+        assertTrue(gate.maxClosedMillis() >= 20);
+        assertTrue(gate.totalClosedMillis() >= gate.maxClosedMillis());
+    }
+}
@@ -106,7 +106,7 @@ class TableTest {
 
     @Test
     void placeToken() {
-        table.canChangeTable = true; 
+        table.gate.open();
         placeSomeCardsAndAssert(); 
         hasTokenOnSlot2 = player.myTokens.contains(2);
         assertEquals(false, hasTokenOnSlot2);   //player has no token on slot 0
@@ -118,7 +118,7 @@ class TableTest {
 
     @Test
     void removeToken() {
-        table.canChangeTable = true;
+        table.gate.open();
         placeSomeCardsAndAssert(); //placing a card
         table.placeToken(player, 2); //placing a token
         hasTokenOnSlot2 = player.myTokens.contains(2); 
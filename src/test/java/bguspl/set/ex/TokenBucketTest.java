@@ -0,0 +1,36 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketTest {
+
+    @Test
+    void acquire_BurstIsNotDelayed() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(1, 5);
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++)
+            bucket.acquire();
+        assertTrue(System.nanoTime() - start < 500_000_000L); // far less than the 1 second a sixth token needs
+        assertEquals(5, bucket.acquired());
+    }
+
+    @Test
+    void acquire_PacesAfterTheBurst() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(200, 1);
+        long start = System.nanoTime();
+        for (int i = 0; i < 21; i++) // the first one is free, the other 20 take 5ms each
+            bucket.acquire();
+        assertTrue(System.nanoTime() - start >= 95_000_000L);
+        assertTrue(bucket.measuredRate() <= 220);
+    }
+
+    @Test
+    void acquire_Unlimited() throws InterruptedException {
+        TokenBucket bucket = new TokenBucket(0, 1);
+        for (int i = 0; i < 1000; i++)
+            bucket.acquire();
+        assertEquals(1000, bucket.acquired());
+    }
+}